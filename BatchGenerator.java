@@ -0,0 +1,298 @@
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Headless batch entry point: generates terrain, caves or worms for a range of
+ * seeds in parallel and writes one {@link TerrainIO} file per seed plus
+ * stats.csv. Never touches Swing, so it runs on display-less nodes.
+ *
+ * Settings come from an optional properties file (config=...) overridden by
+ * command-line key=value or --key value pairs:
+ *
+ *   mode=terrain|caves|worms   seeds=1..1000   threads=N   out=DIR
+ *   format=heightmap|mesh|ply|stl|png   step=1          (terrain)
+ *   caves.min=x,y,z   caves.max=x,y,z   caves.step=1.0  (caves)
+ *   caves.format=points|mesh|ply|stl|png                (caves)
+ *   image.width=1024   image.height=768   image.shading=gouraud|flat   (png)
+ *   caves.graph=SPEC   a {@link DensityGraph} spec used instead of cave.*
+ *   worms.count=10   worms.randomEndpoints=true          (worms)
+ *   terrain.FIELD / cave.FIELD / worm.FIELD  sets any public field of
+ *   TerrainSettings / CaveTerrainGenerator / WormSettings.
+ *
+ * Example: java -cp terrain-generator.jar BatchGenerator mode=terrain seeds=1..500 terrain.gridX=1024
+ */
+public final class BatchGenerator {
+    private BatchGenerator() {}
+
+    private record Result(long seed, long nanos, long items, Path file) {}
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+
+        Properties props;
+        try {
+            props = parseArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("usage: BatchGenerator mode=terrain|caves|worms seeds=A..B [threads=N] [out=DIR] [config=FILE] [key=value ...]");
+            System.exit(2);
+            return;
+        }
+
+        String mode = props.getProperty("mode", "terrain");
+        long[] seeds = parseSeeds(props.getProperty("seeds", "1"));
+        int threads = Integer.parseInt(props.getProperty("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        Path out = Paths.get(props.getProperty("out", "out"));
+        Files.createDirectories(out);
+
+        ExecutorService exec = Executors.newFixedThreadPool(Math.max(1, threads));
+        long t0 = System.nanoTime();
+        List<Future<Result>> futures = new ArrayList<>(seeds.length);
+        for (long seed : seeds) {
+            futures.add(exec.submit(() -> runOne(mode, seed, props, out)));
+        }
+
+        List<Result> results = new ArrayList<>(seeds.length);
+        try {
+            for (Future<Result> f : futures) results.add(f.get());
+        } finally {
+            exec.shutdownNow();
+        }
+        long wall = System.nanoTime() - t0;
+
+        writeStats(out.resolve("stats.csv"), results);
+        printSummary(mode, results, wall, threads);
+    }
+
+    // ===== One seed =====
+
+    private static Result runOne(String mode, long seed, Properties props, Path out) throws Exception {
+        long t0 = System.nanoTime();
+        Path file;
+        long items;
+
+        switch (mode) {
+            case "terrain" -> {
+                TerrainSettings ts = new TerrainSettings();
+                applyFields(ts, "terrain.", props);
+                ts.seed = seed;
+                int step = Integer.parseInt(props.getProperty("step", "1"));
+                String format = props.getProperty("format", "mesh");
+
+                if (format.equals("heightmap")) {
+                    Heightmap H = PerlinTerrainGenerator.buildHeightmap(ts, null);
+                    file = out.resolve("terrain-" + seed + ".tgen");
+                    TerrainIO.writeHeightmap(file, ts, seed, H);
+                    items = H.data.length;
+                } else {
+                    TerrainMesh mesh = PerlinTerrainGenerator.generateMesh(ts, step, null);
+                    file = writeMesh(out, "terrain-" + seed, format, ts, seed, mesh, props);
+                    items = mesh.triangleCount();
+                }
+            }
+            case "caves" -> {
+                CaveTerrainGenerator cave = new CaveTerrainGenerator();
+                applyFields(cave, "cave.", props);
+                cave.seed = seed;
+                Vector3 min = parseVector(props.getProperty("caves.min", "-64,0,-64"));
+                Vector3 max = parseVector(props.getProperty("caves.max", "64,64,64"));
+                double step = Double.parseDouble(props.getProperty("caves.step", "1.0"));
+                String graph = props.getProperty("caves.graph");
+                DensityField field = (graph != null) ? DensityGraph.compile(DensityGraph.parse(graph), seed) : cave;
+
+                String format = props.getProperty("caves.format", "points");
+
+                if (format.equals("points")) {
+                    SurfacePointBuffer pts = SurfaceExtractor.extractSurfacePointBuffer(field, min, max, step, false, null, null, null);
+                    file = out.resolve("caves-" + seed + ".tgen");
+                    TerrainIO.writePoints(file, null, seed, pts);
+                    items = pts.size();
+                } else {
+                    TerrainMesh mesh = SurfaceNets.extractMesh(field, min, max, step, null);
+                    file = writeMesh(out, "caves-" + seed, format, null, seed, mesh, props);
+                    items = mesh.triangleCount();
+                }
+            }
+            case "worms" -> {
+                WormSettings template = new WormSettings();
+                applyFields(template, "worm.", props);
+                int count = Integer.parseInt(props.getProperty("worms.count", "10"));
+                boolean randomEndpoints = Boolean.parseBoolean(props.getProperty("worms.randomEndpoints", "true"));
+                template.seed = seed;
+
+                // One layout can hold 100k worms, so they also split across the common pool
+                PolylineBatch batch = RandomWormGenerator.generateBatch(template, count, randomEndpoints, null, ForkJoinPool.commonPool());
+                file = out.resolve("worms-" + seed + ".tgen");
+                TerrainIO.writePolylines(file, null, seed, batch);
+                items = batch.pointCount();
+            }
+            default -> throw new IllegalArgumentException("unknown mode: " + mode);
+        }
+        return new Result(seed, System.nanoTime() - t0, items, file);
+    }
+
+    private static Path writeMesh(Path out, String name, String format, TerrainSettings ts, long seed,
+                                  TerrainMesh mesh, Properties props) throws IOException {
+        Path file;
+        switch (format) {
+            case "mesh" -> TerrainIO.writeMesh(file = out.resolve(name + ".tgen"), ts, seed, mesh);
+            case "ply" -> TerrainIO.writePly(file = out.resolve(name + ".ply"), mesh);
+            case "stl" -> TerrainIO.writeStl(file = out.resolve(name + ".stl"), mesh);
+            case "png" -> writePng(file = out.resolve(name + ".png"), mesh, props);
+            default -> throw new IllegalArgumentException("unknown format: " + format);
+        }
+        return file;
+    }
+
+    /** Shaded render of mesh from above one corner of its bounding box. */
+    private static void writePng(Path file, TerrainMesh mesh, Properties props) throws IOException {
+        int w = Integer.parseInt(props.getProperty("image.width", "1024"));
+        int h = Integer.parseInt(props.getProperty("image.height", "768"));
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+
+        float[] v = mesh.vertices;
+        if (v.length > 0) {
+            float[] lo = {v[0], v[1], v[2]}, hi = {v[0], v[1], v[2]};
+            for (int i = 3; i < v.length; i++) {
+                lo[i % 3] = Math.min(lo[i % 3], v[i]);
+                hi[i % 3] = Math.max(hi[i % 3], v[i]);
+            }
+            Vector3 center = new Vector3((lo[0] + hi[0]) / 2.0, (lo[1] + hi[1]) / 2.0, (lo[2] + hi[2]) / 2.0);
+            double radius = 0.5 * Math.sqrt((hi[0] - lo[0]) * (hi[0] - lo[0])
+                    + (hi[1] - lo[1]) * (hi[1] - lo[1]) + (hi[2] - lo[2]) * (hi[2] - lo[2]));
+            double fov = Math.toRadians(45);
+            double dist = Math.max(1e-3, radius) / Math.sin(fov / 2);
+            Vector3 eye = center.add(new Vector3(0.6, 0.7, 1.0).normalize().scale(dist));
+
+            TriangleRasterizer r = new TriangleRasterizer();
+            r.shading = TriangleRasterizer.Shading.valueOf(props.getProperty("image.shading", "gouraud").toUpperCase(Locale.ROOT));
+            r.render(img, mesh, TriangleRasterizer.lookAt(eye, center, fov, w, h), null);
+        }
+        ImageIO.write(img, "png", file.toFile());
+    }
+
+    // ===== Arguments =====
+
+    private static Properties parseArgs(String[] args) throws IOException {
+        Properties cli = new Properties();
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            if (a.startsWith("--")) {
+                int eq = a.indexOf('=');
+                if (eq > 0) {
+                    cli.setProperty(a.substring(2, eq), a.substring(eq + 1));
+                } else if (i + 1 < args.length) {
+                    cli.setProperty(a.substring(2), args[++i]);
+                } else {
+                    throw new IllegalArgumentException("missing value for " + a);
+                }
+            } else if (a.indexOf('=') > 0) {
+                int eq = a.indexOf('=');
+                cli.setProperty(a.substring(0, eq), a.substring(eq + 1));
+            } else {
+                throw new IllegalArgumentException("unrecognised argument: " + a);
+            }
+        }
+
+        Properties props = new Properties();
+        String config = cli.getProperty("config");
+        if (config != null) {
+            try (Reader r = Files.newBufferedReader(Paths.get(config), StandardCharsets.UTF_8)) {
+                props.load(r);
+            }
+        }
+        props.putAll(cli);
+        return props;
+    }
+
+    /** "7", "1..100" (inclusive) or "3,9,12". */
+    static long[] parseSeeds(String spec) {
+        spec = spec.trim();
+        int range = spec.indexOf("..");
+        if (range >= 0) {
+            long a = Long.parseLong(spec.substring(0, range).trim());
+            long b = Long.parseLong(spec.substring(range + 2).trim());
+            if (b < a) throw new IllegalArgumentException("empty seed range: " + spec);
+            long[] seeds = new long[Math.toIntExact(b - a + 1)];
+            for (int i = 0; i < seeds.length; i++) seeds[i] = a + i;
+            return seeds;
+        }
+        return Arrays.stream(spec.split(",")).map(String::trim).mapToLong(Long::parseLong).toArray();
+    }
+
+    /** Sets public fields of target from props entries "prefix + fieldName". */
+    private static void applyFields(Object target, String prefix, Properties props) {
+        for (String key : props.stringPropertyNames()) {
+            if (!key.startsWith(prefix)) continue;
+            String name = key.substring(prefix.length());
+            String value = props.getProperty(key).trim();
+            try {
+                Field f = target.getClass().getField(name);
+                Class<?> t = f.getType();
+                if (t == int.class) f.setInt(target, Integer.parseInt(value));
+                else if (t == long.class) f.setLong(target, Long.parseLong(value));
+                else if (t == double.class) f.setDouble(target, Double.parseDouble(value));
+                else if (t == boolean.class) f.setBoolean(target, Boolean.parseBoolean(value));
+                else if (t == Vector3.class) f.set(target, parseVector(value));
+                else throw new IllegalArgumentException("unsupported field type for " + key);
+            } catch (NoSuchFieldException | IllegalAccessException e) {
+                throw new IllegalArgumentException("unknown setting: " + key);
+            }
+        }
+    }
+
+    private static Vector3 parseVector(String text) {
+        String[] parts = text.split(",");
+        if (parts.length != 3) throw new IllegalArgumentException("expected x,y,z: " + text);
+        return new Vector3(
+                Double.parseDouble(parts[0].trim()),
+                Double.parseDouble(parts[1].trim()),
+                Double.parseDouble(parts[2].trim())
+        );
+    }
+
+    // ===== Stats =====
+
+    private static void writeStats(Path file, List<Result> results) throws IOException {
+        try (PrintWriter w = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            w.println("seed,millis,items,file");
+            for (Result r : results) {
+                w.printf(Locale.ROOT, "%d,%.3f,%d,%s%n", r.seed, r.nanos / 1e6, r.items, r.file.getFileName());
+            }
+        }
+    }
+
+    private static void printSummary(String mode, List<Result> results, long wallNanos, int threads) {
+        double[] ms = results.stream().mapToDouble(r -> r.nanos / 1e6).sorted().toArray();
+        double sum = Arrays.stream(ms).sum();
+        long items = results.stream().mapToLong(Result::items).sum();
+
+        System.out.printf(Locale.ROOT, "%s: %d seeds on %d threads in %.1f s (%.1f seeds/s)%n",
+                mode, ms.length, threads, wallNanos / 1e9, ms.length / (wallNanos / 1e9));
+        System.out.printf(Locale.ROOT, "per seed ms: mean %.1f  p50 %.1f  p95 %.1f  max %.1f%n",
+                sum / ms.length, percentile(ms, 0.50), percentile(ms, 0.95), ms[ms.length - 1]);
+        System.out.printf(Locale.ROOT, "items: %d total%n", items);
+    }
+
+    private static double percentile(double[] sorted, double q) {
+        int i = (int) Math.ceil(q * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, i))];
+    }
+}
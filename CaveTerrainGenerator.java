@@ -17,8 +17,8 @@ public final class CaveTerrainGenerator implements DensityField {
 
     @Override
     public double density(Vector3 p) {
-        // 1) Surface height (2D fbm)
-        double h = surfaceBaseY + surfaceAmp * Noise.fbm2(p.x, p.z, surfaceFreq, 5, 2.0, 0.5, seed);
+        // 1) Surface height (2D fbm), cached per column
+        double h = surfaceHeight(p.x, p.z);
 
         // rockDensity > 0 below surface, <=0 above surface
         double rockDensity = h - p.y;
@@ -26,26 +26,153 @@ public final class CaveTerrainGenerator implements DensityField {
         // If above surface: air
         if (rockDensity <= 0) return rockDensity;
 
-        // 2) Warp the cave sampling point to avoid “static mush”
-        Vector3 warp = new Vector3(
-                Noise.fbm3(p, caveWarpFreq, 3, 2.0, 0.5, seed + 100) * caveWarpAmp,
-                Noise.fbm3(p, caveWarpFreq, 3, 2.0, 0.5, seed + 200) * caveWarpAmp,
-                Noise.fbm3(p, caveWarpFreq, 3, 2.0, 0.5, seed + 300) * caveWarpAmp
-        );
-        Vector3 pw = p.add(warp);
-
-        // 3) Cave field
-        double caveValue = Noise.fbm3(pw, caveFreq, 5, 2.0, 0.5, seed + 999);
-
-        // Only carve if deep enough below surface
+        // Only carve if deep enough below surface; the cave noise cannot matter here
         if (p.y > h - minDepthBelowSurface) {
             return rockDensity; // keep solid near the top
         }
 
+        // 2) Warp the cave sampling point to avoid “static mush”
+        double wx = p.x + Noise.fbm3(p.x, p.y, p.z, caveWarpFreq, 3, 2.0, 0.5, seed + 100) * caveWarpAmp;
+        double wy = p.y + Noise.fbm3(p.x, p.y, p.z, caveWarpFreq, 3, 2.0, 0.5, seed + 200) * caveWarpAmp;
+        double wz = p.z + Noise.fbm3(p.x, p.y, p.z, caveWarpFreq, 3, 2.0, 0.5, seed + 300) * caveWarpAmp;
+
+        // 3) Cave field
+        double caveValue = Noise.fbm3(wx, wy, wz, caveFreq, 5, 2.0, 0.5, seed + 999);
+
         // 4) Carve: caveCarve < 0 => air (inside cave)
         double caveCarve = caveThreshold - caveValue;
 
         // Combine: if caveCarve is negative, it wins (air)
         return Math.min(rockDensity, caveCarve);
     }
+
+    /**
+     * Same values as {@link #density}: the surface and depth gate per sample, then
+     * the warp and cave noise as array batches over the samples deep enough to carve.
+     */
+    @Override
+    public void densityBatch(double[] xs, double[] ys, double[] zs, double[] out, int n) {
+        int[] deep = new int[n];
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            double h = surfaceHeight(xs[i], zs[i]);
+            double rockDensity = h - ys[i];
+            out[i] = rockDensity;
+            if (rockDensity > 0 && !(ys[i] > h - minDepthBelowSurface)) deep[m++] = i;
+        }
+        if (m == 0) return;
+
+        double[] px = new double[m], py = new double[m], pz = new double[m];
+        for (int j = 0; j < m; j++) {
+            int i = deep[j];
+            px[j] = xs[i];
+            py[j] = ys[i];
+            pz[j] = zs[i];
+        }
+
+        double[] wx = new double[m], wy = new double[m], wz = new double[m];
+        Noise.fbm3(px, py, pz, wx, m, caveWarpFreq, 3, 2.0, 0.5, seed + 100);
+        Noise.fbm3(px, py, pz, wy, m, caveWarpFreq, 3, 2.0, 0.5, seed + 200);
+        Noise.fbm3(px, py, pz, wz, m, caveWarpFreq, 3, 2.0, 0.5, seed + 300);
+        for (int j = 0; j < m; j++) {
+            wx[j] = px[j] + wx[j] * caveWarpAmp;
+            wy[j] = py[j] + wy[j] * caveWarpAmp;
+            wz[j] = pz[j] + wz[j] * caveWarpAmp;
+        }
+
+        double[] caveValue = px;   // inputs no longer needed
+        Noise.fbm3(wx, wy, wz, caveValue, m, caveFreq, 5, 2.0, 0.5, seed + 999);
+        for (int j = 0; j < m; j++) {
+            int i = deep[j];
+            out[i] = Math.min(out[i], caveThreshold - caveValue[j]);
+        }
+    }
+
+    /**
+     * Terrain surface height at (x, z); vertical runs of samples hit the column
+     * cache (per thread, or the shared one if installed).
+     */
+    public double surfaceHeight(double x, double z) {
+        HeightFunction shared = sharedSurface;
+        if (shared != null) return shared.height(x, z);
+
+        SurfaceColumns c = columns;
+        if (c == null || !c.matches(this)) columns = c = new SurfaceColumns(this);
+        return c.heights.height(x, z);
+    }
+
+    /** Uncached surface height (5-octave fbm2). */
+    public double computeSurfaceHeight(double x, double z) {
+        return surfaceBaseY + surfaceAmp * Noise.fbm2(x, z, surfaceFreq, 5, 2.0, 0.5, seed);
+    }
+
+    /**
+     * Routes {@link #surfaceHeight} through one {@link ColumnHeightCache} of the
+     * given number of columns, shared by all threads; 0 goes back to the
+     * per-thread caches. Unlike those, the shared cache does not notice changes
+     * to the surface settings or seed, so install it after configuring.
+     */
+    public void setSharedSurfaceCache(int capacity) {
+        sharedSurface = (capacity > 0) ? new ColumnHeightCache(this::computeSurfaceHeight, capacity) : null;
+    }
+
+    private volatile HeightFunction sharedSurface;
+    private volatile SurfaceColumns columns;
+
+    /**
+     * Per-thread column memo for one snapshot of the surface settings. The
+     * fields above are public and mutable, so a new memo is made when they change.
+     */
+    private static final class SurfaceColumns {
+        final long seed;
+        final double baseY, amp, freq;
+        final HeightFunction heights;
+
+        SurfaceColumns(CaveTerrainGenerator g) {
+            seed = g.seed;
+            baseY = g.surfaceBaseY;
+            amp = g.surfaceAmp;
+            freq = g.surfaceFreq;
+            heights = ColumnHeightCache.perThread(g::computeSurfaceHeight, 4096);
+        }
+
+        boolean matches(CaveTerrainGenerator g) {
+            return seed == g.seed && baseY == g.surfaceBaseY && amp == g.surfaceAmp && freq == g.surfaceFreq;
+        }
+    }
+
+    /** Interval version of {@link #density}; every term is bounded over the box. */
+    @Override
+    public boolean densityBounds(double x0, double y0, double z0,
+                                 double x1, double y1, double z1, double[] range) {
+        double[] r = new double[2];
+
+        // surface height range
+        Noise.fbm2Range(x0, z0, x1, z1, surfaceFreq, 5, 2.0, 0.5, seed, r);
+        double hLo = surfaceBaseY + Math.min(surfaceAmp * r[0], surfaceAmp * r[1]);
+        double hHi = surfaceBaseY + Math.max(surfaceAmp * r[0], surfaceAmp * r[1]);
+
+        double rockLo = hLo - y1;
+        double rockHi = hHi - y0;
+        range[0] = rockLo;
+        range[1] = rockHi;
+
+        // entirely above ground, or too shallow anywhere for carving
+        if (rockHi <= 0 || y0 > hHi - minDepthBelowSurface) return true;
+
+        // warped sample point stays within the box grown by the warp range
+        Noise.fbm3Range(x0, y0, z0, x1, y1, z1, caveWarpFreq, 3, 2.0, 0.5, seed + 100, r);
+        double wx0 = x0 + Math.min(r[0] * caveWarpAmp, r[1] * caveWarpAmp), wx1 = x1 + Math.max(r[0] * caveWarpAmp, r[1] * caveWarpAmp);
+        Noise.fbm3Range(x0, y0, z0, x1, y1, z1, caveWarpFreq, 3, 2.0, 0.5, seed + 200, r);
+        double wy0 = y0 + Math.min(r[0] * caveWarpAmp, r[1] * caveWarpAmp), wy1 = y1 + Math.max(r[0] * caveWarpAmp, r[1] * caveWarpAmp);
+        Noise.fbm3Range(x0, y0, z0, x1, y1, z1, caveWarpFreq, 3, 2.0, 0.5, seed + 300, r);
+        double wz0 = z0 + Math.min(r[0] * caveWarpAmp, r[1] * caveWarpAmp), wz1 = z1 + Math.max(r[0] * caveWarpAmp, r[1] * caveWarpAmp);
+
+        Noise.fbm3Range(wx0, wy0, wz0, wx1, wy1, wz1, caveFreq, 5, 2.0, 0.5, seed + 999, r);
+        double carveLo = caveThreshold - r[1];
+
+        // min(rock, carve) can only lower the density
+        range[0] = Math.min(rockLo, carveLo);
+        return true;
+    }
 }
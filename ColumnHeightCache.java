@@ -0,0 +1,127 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Bounded, thread-safe memo in front of a {@link HeightFunction}, keyed on the
+ * exact bits of (x, z). Meant to be shared by all threads sampling one field,
+ * e.g. via {@link CaveTerrainGenerator#setSharedSurfaceCache}.
+ *
+ * The table is direct mapped: a fixed number of slots, each holding one
+ * (x, z, height) entry, and a colliding column simply replaces it. Every slot
+ * is guarded by a sequence stamp (odd while being written), so readers never
+ * lock or allocate and never see a torn entry; a reader that races a writer
+ * just recomputes. Memory is 32 bytes per slot.
+ */
+public final class ColumnHeightCache implements HeightFunction {
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final HeightFunction source;
+    private final long[] table;   // per slot: stamp, x bits, z bits, height bits
+    private final int mask;
+
+    /** capacity is rounded up to a power of two. */
+    public ColumnHeightCache(HeightFunction source, int capacity) {
+        if (capacity < 1 || capacity > (1 << 26)) throw new IllegalArgumentException("capacity: " + capacity);
+        this.source = source;
+        int slots = Integer.highestOneBit(capacity);
+        if (slots < capacity) slots <<= 1;
+        this.table = new long[4 * slots];
+        this.mask = slots - 1;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    @Override
+    public double height(double x, double z) {
+        long kx = Double.doubleToLongBits(x), kz = Double.doubleToLongBits(z);
+        int base = slot(kx, kz) << 2;
+
+        long stamp = (long) SLOTS.getAcquire(table, base);
+        if ((stamp & 1) == 0 && stamp != 0) {
+            long sx = (long) SLOTS.getOpaque(table, base + 1);
+            long sz = (long) SLOTS.getOpaque(table, base + 2);
+            long sh = (long) SLOTS.getOpaque(table, base + 3);
+            VarHandle.loadLoadFence();
+            if (sx == kx && sz == kz && (long) SLOTS.getOpaque(table, base) == stamp) {
+                return Double.longBitsToDouble(sh);
+            }
+        }
+
+        double h = source.height(x, z);
+
+        // publish unless another thread is writing this slot right now
+        long cur = (long) SLOTS.getVolatile(table, base);
+        if ((cur & 1) == 0 && SLOTS.compareAndSet(table, base, cur, cur + 1)) {
+            SLOTS.setOpaque(table, base + 1, kx);
+            SLOTS.setOpaque(table, base + 2, kz);
+            SLOTS.setOpaque(table, base + 3, Double.doubleToRawLongBits(h));
+            SLOTS.setRelease(table, base, cur + 2);
+        }
+        return h;
+    }
+
+    /**
+     * Same direct-mapped memo with one private table per thread: no stamps or
+     * fences, for callers whose threads work on disjoint columns anyway.
+     */
+    public static HeightFunction perThread(HeightFunction source, int capacity) {
+        if (capacity < 1 || capacity > (1 << 26)) throw new IllegalArgumentException("capacity: " + capacity);
+        int slots = Integer.highestOneBit(capacity);
+        if (slots < capacity) slots <<= 1;
+        int size = slots;
+
+        ThreadLocal<ThreadTable> tables = ThreadLocal.withInitial(() -> new ThreadTable(size));
+        return (x, z) -> tables.get().height(source, x, z);
+    }
+
+    private static final class ThreadTable {
+        final long[] keyX, keyZ;
+        final double[] height;
+        final boolean[] filled;
+        final int mask;
+
+        ThreadTable(int size) {
+            keyX = new long[size];
+            keyZ = new long[size];
+            height = new double[size];
+            filled = new boolean[size];
+            mask = size - 1;
+        }
+
+        double height(HeightFunction source, double x, double z) {
+            long kx = Double.doubleToLongBits(x), kz = Double.doubleToLongBits(z);
+            int slot = (int) hash(kx, kz) & mask;
+            if (filled[slot] && keyX[slot] == kx && keyZ[slot] == kz) return height[slot];
+
+            double h = source.height(x, z);
+            keyX[slot] = kx;
+            keyZ[slot] = kz;
+            height[slot] = h;
+            filled[slot] = true;
+            return h;
+        }
+    }
+
+    private int slot(long kx, long kz) {
+        return (int) hash(kx, kz) & mask;
+    }
+
+    /**
+     * Hash of a column's x/z bits. Doubles holding small integers differ only in
+     * their top bits, so each key is fully mixed before the two are combined.
+     */
+    static long hash(long kx, long kz) {
+        return mix(mix(kx) + kz);
+    }
+
+    private static long mix(long h) {
+        h ^= (h >>> 33);
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= (h >>> 33);
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= (h >>> 33);
+        return h;
+    }
+}
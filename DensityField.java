@@ -4,4 +4,29 @@ public interface DensityField {
      * <=0 : air
      */
     double density(Vector3 p);
+
+    /**
+     * Conservative density bounds over the box [x0,x1]x[y0,y1]x[z0,z1]:
+     * range[0] <= density <= range[1] everywhere inside. Returns false when
+     * the field cannot bound itself (the default), in which case extractors
+     * sample everything.
+     */
+    default boolean densityBounds(double x0, double y0, double z0,
+                                  double x1, double y1, double z1, double[] range) {
+        return false;
+    }
+
+    /**
+     * out[i] = density at (xs[i], ys[i], zs[i]) for i < n. Extractors sample whole
+     * slabs through this, so fields can batch their noise (see Noise.fbm3 on arrays).
+     */
+    default void densityBatch(double[] xs, double[] ys, double[] zs, double[] out, int n) {
+        Vector3 p = new Vector3(0, 0, 0);
+        for (int i = 0; i < n; i++) {
+            p.x = xs[i];
+            p.y = ys[i];
+            p.z = zs[i];
+            out[i] = density(p);
+        }
+    }
 }
@@ -0,0 +1,739 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Density fields assembled from nodes instead of Java code, either through the
+ * factory methods or from a text spec such as
+ *
+ *   ground(add(40, mul(18, fbm2(0.015, 5, 0))), 8,
+ *          threshold(0.28, warp(18, 0.02, 3, 100, fbm3(0.035, 5, 999))))
+ *
+ * which is exactly {@link CaveTerrainGenerator} with its default settings.
+ *
+ * Nodes (n = a number literal, e = any expression):
+ *   x  y  z  n                      coordinates and constants
+ *   add(e, e...)  mul(e, e...)      left to right
+ *   min(e, e...)  max(e, e...)
+ *   sub(e, e)  neg(e)
+ *   clamp(e, lo, hi)                lo/hi are numbers
+ *   threshold(t, e)                 t - e
+ *   fbm2(freq, octaves, seedOffset[, lacunarity, gain])    fbm over (x, z)
+ *   fbm3(freq, octaves, seedOffset[, lacunarity, gain])
+ *   ridged(freq, octaves, seedOffset[, lacunarity, gain])  in [0,1]
+ *   warp(amp, freq, octaves, seedOffset, e)   e at p + amp * fbm3 offsets
+ *                                             (seeds seedOffset, +100, +200)
+ *   ground(height, minDepth, carve)  height - y above ground and in the top
+ *                                    minDepth, min(height - y, carve) below
+ *
+ * {@link #compile} turns the tree into one specialised lambda per node (constant
+ * operands folded into their parent), so a sample is a chain of direct calls
+ * with no interpretation. Subtrees that do not depend on y are wrapped in a
+ * per-thread column memo, as CaveTerrainGenerator does for its surface height.
+ * Batches go through a second compiled form that runs noise and warp nodes on
+ * the {@link Noise} array kernels and only carves the samples a ground node
+ * keeps deep, like {@link CaveTerrainGenerator#densityBatch}; both forms give
+ * bit-identical values.
+ * Every node also has interval bounds, so compiled fields keep the octree
+ * pruning of {@link SurfaceExtractor}.
+ */
+public final class DensityGraph {
+    private DensityGraph() {}
+
+    /** The compiled evaluator of one node. */
+    @FunctionalInterface
+    public interface Kernel {
+        double eval(double x, double y, double z);
+    }
+
+    /** The compiled batch evaluator of one node: out[i] for the samples i < n. */
+    @FunctionalInterface
+    public interface BatchKernel {
+        void eval(double[] xs, double[] ys, double[] zs, double[] out, int n);
+    }
+
+    private static final int COLUMN_MEMO = 4096;
+
+    // ===== Nodes =====
+
+    public abstract static class Node {
+        Node() {}
+
+        abstract Kernel compile(long seed, boolean memoized);
+
+        /** Sample by sample unless the node has an array form. */
+        BatchKernel compileBatch(long seed) {
+            return scalarBatch(compile(seed, false));
+        }
+
+        static BatchKernel scalarBatch(Kernel k) {
+            return (xs, ys, zs, out, n) -> {
+                for (int i = 0; i < n; i++) out[i] = k.eval(xs[i], ys[i], zs[i]);
+            };
+        }
+
+        /** Conservative [range[0], range[1]] of the node over the box. */
+        abstract void bounds(long seed, double x0, double y0, double z0, double x1, double y1, double z1, double[] range);
+
+        abstract boolean usesY();
+
+        abstract boolean hasNoise();
+    }
+
+    private static Kernel kernel(Node n, long seed, boolean memoized) {
+        if (memoized || n.usesY() || !n.hasNoise()) return n.compile(seed, memoized);
+
+        // largest y-independent subtree: evaluate once per (x, z) column and thread
+        Kernel inner = n.compile(seed, true);
+        HeightFunction memo = ColumnHeightCache.perThread((x, z) -> inner.eval(x, 0, z), COLUMN_MEMO);
+        return (x, y, z) -> memo.height(x, z);
+    }
+
+    private static BatchKernel batchKernel(Node n, long seed) {
+        // memoized columns beat the array kernels on vertical runs
+        if (!n.usesY() && n.hasNoise()) return Node.scalarBatch(kernel(n, seed, false));
+        return n.compileBatch(seed);
+    }
+
+    private static final class Const extends Node {
+        final double value;
+
+        Const(double value) { this.value = value; }
+
+        Kernel compile(long seed, boolean memoized) {
+            double v = value;
+            return (x, y, z) -> v;
+        }
+
+        BatchKernel compileBatch(long seed) {
+            double v = value;
+            return (xs, ys, zs, out, n) -> Arrays.fill(out, 0, n, v);
+        }
+
+        void bounds(long seed, double x0, double y0, double z0, double x1, double y1, double z1, double[] range) {
+            range[0] = range[1] = value;
+        }
+
+        boolean usesY() { return false; }
+        boolean hasNoise() { return false; }
+    }
+
+    private static final class Coord extends Node {
+        final int axis;
+
+        Coord(int axis) { this.axis = axis; }
+
+        Kernel compile(long seed, boolean memoized) {
+            return switch (axis) {
+                case 0 -> (x, y, z) -> x;
+                case 1 -> (x, y, z) -> y;
+                default -> (x, y, z) -> z;
+            };
+        }
+
+        BatchKernel compileBatch(long seed) {
+            int a = axis;
+            return (xs, ys, zs, out, n) -> System.arraycopy(a == 0 ? xs : a == 1 ? ys : zs, 0, out, 0, n);
+        }
+
+        void bounds(long seed, double x0, double y0, double z0, double x1, double y1, double z1, double[] range) {
+            range[0] = axis == 0 ? x0 : axis == 1 ? y0 : z0;
+            range[1] = axis == 0 ? x1 : axis == 1 ? y1 : z1;
+        }
+
+        boolean usesY() { return axis == 1; }
+        boolean hasNoise() { return false; }
+    }
+
+    private enum Op { ADD, MUL, MIN, MAX, SUB }
+
+    /** a op b; n-ary forms are folded into a left-leaning chain of these. */
+    private static final class Binary extends Node {
+        final Op op;
+        final Node a, b;
+
+        Binary(Op op, Node a, Node b) {
+            this.op = op;
+            this.a = a;
+            this.b = b;
+        }
+
+        Kernel compile(long seed, boolean memoized) {
+            if (a instanceof Const ca && b instanceof Const cb) {
+                double v = apply(op, ca.value, cb.value);
+                return (x, y, z) -> v;
+            }
+            if (a instanceof Const ca) {
+                double c = ca.value;
+                Kernel kb = kernel(b, seed, memoized);
+                return switch (op) {
+                    case ADD -> (x, y, z) -> c + kb.eval(x, y, z);
+                    case MUL -> (x, y, z) -> c * kb.eval(x, y, z);
+                    case MIN -> (x, y, z) -> Math.min(c, kb.eval(x, y, z));
+                    case MAX -> (x, y, z) -> Math.max(c, kb.eval(x, y, z));
+                    case SUB -> (x, y, z) -> c - kb.eval(x, y, z);
+                };
+            }
+            if (b instanceof Const cb) {
+                double c = cb.value;
+                Kernel ka = kernel(a, seed, memoized);
+                return switch (op) {
+                    case ADD -> (x, y, z) -> ka.eval(x, y, z) + c;
+                    case MUL -> (x, y, z) -> ka.eval(x, y, z) * c;
+                    case MIN -> (x, y, z) -> Math.min(ka.eval(x, y, z), c);
+                    case MAX -> (x, y, z) -> Math.max(ka.eval(x, y, z), c);
+                    case SUB -> (x, y, z) -> ka.eval(x, y, z) - c;
+                };
+            }
+            Kernel ka = kernel(a, seed, memoized), kb = kernel(b, seed, memoized);
+            return switch (op) {
+                case ADD -> (x, y, z) -> ka.eval(x, y, z) + kb.eval(x, y, z);
+                case MUL -> (x, y, z) -> ka.eval(x, y, z) * kb.eval(x, y, z);
+                case MIN -> (x, y, z) -> Math.min(ka.eval(x, y, z), kb.eval(x, y, z));
+                case MAX -> (x, y, z) -> Math.max(ka.eval(x, y, z), kb.eval(x, y, z));
+                case SUB -> (x, y, z) -> ka.eval(x, y, z) - kb.eval(x, y, z);
+            };
+        }
+
+        BatchKernel compileBatch(long seed) {
+            Op o = op;
+            if (a instanceof Const ca && b instanceof Const cb) {
+                double v = apply(op, ca.value, cb.value);
+                return (xs, ys, zs, out, n) -> Arrays.fill(out, 0, n, v);
+            }
+            if (a instanceof Const ca) {
+                double c = ca.value;
+                BatchKernel kb = batchKernel(b, seed);
+                return (xs, ys, zs, out, n) -> {
+                    kb.eval(xs, ys, zs, out, n);
+                    for (int i = 0; i < n; i++) out[i] = apply(o, c, out[i]);
+                };
+            }
+            if (b instanceof Const cb) {
+                double c = cb.value;
+                BatchKernel ka = batchKernel(a, seed);
+                return (xs, ys, zs, out, n) -> {
+                    ka.eval(xs, ys, zs, out, n);
+                    for (int i = 0; i < n; i++) out[i] = apply(o, out[i], c);
+                };
+            }
+            BatchKernel ka = batchKernel(a, seed), kb = batchKernel(b, seed);
+            return (xs, ys, zs, out, n) -> {
+                double[] right = new double[n];
+                ka.eval(xs, ys, zs, out, n);
+                kb.eval(xs, ys, zs, right, n);
+                for (int i = 0; i < n; i++) out[i] = apply(o, out[i], right[i]);
+            };
+        }
+
+        void bounds(long seed, double x0, double y0, double z0, double x1, double y1, double z1, double[] range) {
+            a.bounds(seed, x0, y0, z0, x1, y1, z1, range);
+            double a0 = range[0], a1 = range[1];
+            b.bounds(seed, x0, y0, z0, x1, y1, z1, range);
+            double b0 = range[0], b1 = range[1];
+
+            switch (op) {
+                case ADD -> { range[0] = a0 + b0; range[1] = a1 + b1; }
+                case SUB -> { range[0] = a0 - b1; range[1] = a1 - b0; }
+                case MIN -> { range[0] = Math.min(a0, b0); range[1] = Math.min(a1, b1); }
+                case MAX -> { range[0] = Math.max(a0, b0); range[1] = Math.max(a1, b1); }
+                case MUL -> {
+                    double p = a0 * b0, q = a0 * b1, r = a1 * b0, s = a1 * b1;
+                    range[0] = Math.min(Math.min(p, q), Math.min(r, s));
+                    range[1] = Math.max(Math.max(p, q), Math.max(r, s));
+                }
+            }
+        }
+
+        boolean usesY() { return a.usesY() || b.usesY(); }
+        boolean hasNoise() { return a.hasNoise() || b.hasNoise(); }
+
+        private static double apply(Op op, double a, double b) {
+            return switch (op) {
+                case ADD -> a + b;
+                case MUL -> a * b;
+                case MIN -> Math.min(a, b);
+                case MAX -> Math.max(a, b);
+                case SUB -> a - b;
+            };
+        }
+    }
+
+    private static final class Clamp extends Node {
+        final Node a;
+        final double lo, hi;
+
+        Clamp(Node a, double lo, double hi) {
+            if (!(lo <= hi)) throw new IllegalArgumentException("clamp: lo > hi");
+            this.a = a;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        Kernel compile(long seed, boolean memoized) {
+            Kernel ka = kernel(a, seed, memoized);
+            double l = lo, h = hi;
+            return (x, y, z) -> Math.max(l, Math.min(h, ka.eval(x, y, z)));
+        }
+
+        BatchKernel compileBatch(long seed) {
+            BatchKernel ka = batchKernel(a, seed);
+            double l = lo, h = hi;
+            return (xs, ys, zs, out, n) -> {
+                ka.eval(xs, ys, zs, out, n);
+                for (int i = 0; i < n; i++) out[i] = Math.max(l, Math.min(h, out[i]));
+            };
+        }
+
+        void bounds(long seed, double x0, double y0, double z0, double x1, double y1, double z1, double[] range) {
+            a.bounds(seed, x0, y0, z0, x1, y1, z1, range);
+            range[0] = Math.max(lo, Math.min(hi, range[0]));
+            range[1] = Math.max(lo, Math.min(hi, range[1]));
+        }
+
+        boolean usesY() { return a.usesY(); }
+        boolean hasNoise() { return a.hasNoise(); }
+    }
+
+    private enum NoiseKind { FBM2, FBM3, RIDGED }
+
+    private static final class NoiseNode extends Node {
+        final NoiseKind kind;
+        final double freq, lacunarity, gain;
+        final int octaves;
+        final long seedOffset;
+
+        NoiseNode(NoiseKind kind, double freq, int octaves, long seedOffset, double lacunarity, double gain) {
+            if (octaves < 1) throw new IllegalArgumentException("octaves must be >= 1");
+            this.kind = kind;
+            this.freq = freq;
+            this.octaves = octaves;
+            this.seedOffset = seedOffset;
+            this.lacunarity = lacunarity;
+            this.gain = gain;
+        }
+
+        Kernel compile(long seed, boolean memoized) {
+            double f = freq, l = lacunarity, g = gain;
+            int o = octaves;
+            long s = seed + seedOffset;
+            return switch (kind) {
+                case FBM2 -> (x, y, z) -> Noise.fbm2(x, z, f, o, l, g, s);
+                case FBM3 -> (x, y, z) -> Noise.fbm3(x, y, z, f, o, l, g, s);
+                case RIDGED -> (x, y, z) -> Noise.ridged3(x, y, z, f, o, l, g, s);
+            };
+        }
+
+        BatchKernel compileBatch(long seed) {
+            double f = freq, l = lacunarity, g = gain;
+            int o = octaves;
+            long s = seed + seedOffset;
+            return switch (kind) {
+                case FBM2 -> (xs, ys, zs, out, n) -> Noise.fbm2(xs, zs, out, n, f, o, l, g, s);
+                case FBM3 -> (xs, ys, zs, out, n) -> Noise.fbm3(xs, ys, zs, out, n, f, o, l, g, s);
+                case RIDGED -> super.compileBatch(seed);   // no array kernel
+            };
+        }
+
+        void bounds(long seed, double x0, double y0, double z0, double x1, double y1, double z1, double[] range) {
+            long s = seed + seedOffset;
+            switch (kind) {
+                case FBM2 -> Noise.fbm2Range(x0, z0, x1, z1, freq, octaves, lacunarity, gain, s, range);
+                case FBM3 -> Noise.fbm3Range(x0, y0, z0, x1, y1, z1, freq, octaves, lacunarity, gain, s, range);
+                case RIDGED -> { range[0] = -1e-9; range[1] = 1 + 1e-9; }
+            }
+        }
+
+        boolean usesY() { return kind != NoiseKind.FBM2; }
+        boolean hasNoise() { return true; }
+    }
+
+    private static final class Warp extends Node {
+        final double amp, freq;
+        final int octaves;
+        final long seedOffset;
+        final Node child;
+
+        Warp(double amp, double freq, int octaves, long seedOffset, Node child) {
+            if (octaves < 1) throw new IllegalArgumentException("octaves must be >= 1");
+            this.amp = amp;
+            this.freq = freq;
+            this.octaves = octaves;
+            this.seedOffset = seedOffset;
+            this.child = child;
+        }
+
+        Kernel compile(long seed, boolean memoized) {
+            Kernel k = kernel(child, seed, memoized);
+            double a = amp, f = freq;
+            int o = octaves;
+            long sx = seed + seedOffset, sy = sx + 100, sz = sx + 200;
+            return (x, y, z) -> {
+                double wx = x + Noise.fbm3(x, y, z, f, o, 2.0, 0.5, sx) * a;
+                double wy = y + Noise.fbm3(x, y, z, f, o, 2.0, 0.5, sy) * a;
+                double wz = z + Noise.fbm3(x, y, z, f, o, 2.0, 0.5, sz) * a;
+                return k.eval(wx, wy, wz);
+            };
+        }
+
+        BatchKernel compileBatch(long seed) {
+            BatchKernel k = batchKernel(child, seed);
+            double a = amp, f = freq;
+            int o = octaves;
+            long sx = seed + seedOffset, sy = sx + 100, sz = sx + 200;
+            return (xs, ys, zs, out, n) -> {
+                double[] wx = new double[n], wy = new double[n], wz = new double[n];
+                Noise.fbm3(xs, ys, zs, wx, n, f, o, 2.0, 0.5, sx);
+                Noise.fbm3(xs, ys, zs, wy, n, f, o, 2.0, 0.5, sy);
+                Noise.fbm3(xs, ys, zs, wz, n, f, o, 2.0, 0.5, sz);
+                for (int i = 0; i < n; i++) {
+                    wx[i] = xs[i] + wx[i] * a;
+                    wy[i] = ys[i] + wy[i] * a;
+                    wz[i] = zs[i] + wz[i] * a;
+                }
+                k.eval(wx, wy, wz, out, n);
+            };
+        }
+
+        void bounds(long seed, double x0, double y0, double z0, double x1, double y1, double z1, double[] range) {
+            long s = seed + seedOffset;
+            Noise.fbm3Range(x0, y0, z0, x1, y1, z1, freq, octaves, 2.0, 0.5, s, range);
+            double wx0 = x0 + Math.min(range[0] * amp, range[1] * amp), wx1 = x1 + Math.max(range[0] * amp, range[1] * amp);
+            Noise.fbm3Range(x0, y0, z0, x1, y1, z1, freq, octaves, 2.0, 0.5, s + 100, range);
+            double wy0 = y0 + Math.min(range[0] * amp, range[1] * amp), wy1 = y1 + Math.max(range[0] * amp, range[1] * amp);
+            Noise.fbm3Range(x0, y0, z0, x1, y1, z1, freq, octaves, 2.0, 0.5, s + 200, range);
+            double wz0 = z0 + Math.min(range[0] * amp, range[1] * amp), wz1 = z1 + Math.max(range[0] * amp, range[1] * amp);
+            child.bounds(seed, wx0, wy0, wz0, wx1, wy1, wz1, range);
+        }
+
+        // warped coordinates mix all three axes
+        boolean usesY() { return true; }
+        boolean hasNoise() { return true; }
+    }
+
+    /** The depth-gated carve of {@link CaveTerrainGenerator#density}, with the same early outs. */
+    private static final class Ground extends Node {
+        final Node height, carve;
+        final double minDepth;
+
+        Ground(Node height, double minDepth, Node carve) {
+            this.height = height;
+            this.minDepth = minDepth;
+            this.carve = carve;
+        }
+
+        Kernel compile(long seed, boolean memoized) {
+            Kernel kh = kernel(height, seed, memoized), kc = kernel(carve, seed, memoized);
+            double d = minDepth;
+            return (x, y, z) -> {
+                double h = kh.eval(x, y, z);
+                double rock = h - y;
+                if (rock <= 0) return rock;
+                if (y > h - d) return rock;
+                return Math.min(rock, kc.eval(x, y, z));
+            };
+        }
+
+        /** Heights for all samples, then the carve only over the deep ones. */
+        BatchKernel compileBatch(long seed) {
+            BatchKernel kh = batchKernel(height, seed), kc = batchKernel(carve, seed);
+            double d = minDepth;
+            return (xs, ys, zs, out, n) -> {
+                kh.eval(xs, ys, zs, out, n);
+                int[] deep = new int[n];
+                int m = 0;
+                for (int i = 0; i < n; i++) {
+                    double h = out[i];
+                    double rock = h - ys[i];
+                    out[i] = rock;
+                    if (rock > 0 && !(ys[i] > h - d)) deep[m++] = i;
+                }
+                if (m == 0) return;
+
+                double[] px = new double[m], py = new double[m], pz = new double[m], c = new double[m];
+                for (int j = 0; j < m; j++) {
+                    int i = deep[j];
+                    px[j] = xs[i];
+                    py[j] = ys[i];
+                    pz[j] = zs[i];
+                }
+                kc.eval(px, py, pz, c, m);
+                for (int j = 0; j < m; j++) {
+                    int i = deep[j];
+                    out[i] = Math.min(out[i], c[j]);
+                }
+            };
+        }
+
+        void bounds(long seed, double x0, double y0, double z0, double x1, double y1, double z1, double[] range) {
+            height.bounds(seed, x0, y0, z0, x1, y1, z1, range);
+            double hLo = range[0], hHi = range[1];
+            double rockLo = hLo - y1, rockHi = hHi - y0;
+
+            if (rockHi <= 0 || y0 > hHi - minDepth) {
+                range[0] = rockLo;
+                range[1] = rockHi;
+                return;
+            }
+            carve.bounds(seed, x0, y0, z0, x1, y1, z1, range);
+            range[0] = Math.min(rockLo, range[0]);
+            range[1] = rockHi;
+        }
+
+        boolean usesY() { return true; }
+        boolean hasNoise() { return height.hasNoise() || carve.hasNoise(); }
+    }
+
+    // ===== Factories =====
+
+    public static Node constant(double v) { return new Const(v); }
+    public static Node x() { return new Coord(0); }
+    public static Node y() { return new Coord(1); }
+    public static Node z() { return new Coord(2); }
+
+    public static Node add(Node... terms) { return chain(Op.ADD, terms); }
+    public static Node mul(Node... terms) { return chain(Op.MUL, terms); }
+    public static Node min(Node... terms) { return chain(Op.MIN, terms); }
+    public static Node max(Node... terms) { return chain(Op.MAX, terms); }
+    public static Node sub(Node a, Node b) { return new Binary(Op.SUB, a, b); }
+    public static Node neg(Node a) { return new Binary(Op.SUB, new Const(0), a); }
+    public static Node clamp(Node a, double lo, double hi) { return new Clamp(a, lo, hi); }
+    public static Node threshold(double t, Node a) { return new Binary(Op.SUB, new Const(t), a); }
+
+    public static Node fbm2(double freq, int octaves, long seedOffset) { return fbm2(freq, octaves, seedOffset, 2.0, 0.5); }
+    public static Node fbm3(double freq, int octaves, long seedOffset) { return fbm3(freq, octaves, seedOffset, 2.0, 0.5); }
+    public static Node ridged(double freq, int octaves, long seedOffset) { return ridged(freq, octaves, seedOffset, 2.0, 0.5); }
+
+    public static Node fbm2(double freq, int octaves, long seedOffset, double lacunarity, double gain) {
+        return new NoiseNode(NoiseKind.FBM2, freq, octaves, seedOffset, lacunarity, gain);
+    }
+
+    public static Node fbm3(double freq, int octaves, long seedOffset, double lacunarity, double gain) {
+        return new NoiseNode(NoiseKind.FBM3, freq, octaves, seedOffset, lacunarity, gain);
+    }
+
+    public static Node ridged(double freq, int octaves, long seedOffset, double lacunarity, double gain) {
+        return new NoiseNode(NoiseKind.RIDGED, freq, octaves, seedOffset, lacunarity, gain);
+    }
+
+    public static Node warp(double amp, double freq, int octaves, long seedOffset, Node child) {
+        return new Warp(amp, freq, octaves, seedOffset, child);
+    }
+
+    public static Node ground(Node height, double minDepth, Node carve) {
+        return new Ground(height, minDepth, carve);
+    }
+
+    private static Node chain(Op op, Node[] terms) {
+        if (terms.length == 0) throw new IllegalArgumentException(op.name().toLowerCase() + " needs at least one term");
+        Node n = terms[0];
+        for (int i = 1; i < terms.length; i++) n = new Binary(op, n, terms[i]);
+        return n;
+    }
+
+    /** The graph of a {@link CaveTerrainGenerator} with its current settings (compile with its seed). */
+    public static Node cave(CaveTerrainGenerator g) {
+        return ground(
+                add(constant(g.surfaceBaseY), mul(constant(g.surfaceAmp), fbm2(g.surfaceFreq, 5, 0))),
+                g.minDepthBelowSurface,
+                threshold(g.caveThreshold, warp(g.caveWarpAmp, g.caveWarpFreq, 3, 100, fbm3(g.caveFreq, 5, 999))));
+    }
+
+    // ===== Compiled field =====
+
+    public static CompiledField compile(Node root, long seed) {
+        return new CompiledField(root, seed);
+    }
+
+    public static final class CompiledField implements DensityField {
+        private final Node root;
+        private final long seed;
+        private final Kernel kernel;
+        private final BatchKernel batch;
+
+        private CompiledField(Node root, long seed) {
+            this.root = root;
+            this.seed = seed;
+            this.kernel = kernel(root, seed, false);
+            this.batch = batchKernel(root, seed);
+        }
+
+        @Override
+        public double density(Vector3 p) {
+            return kernel.eval(p.x, p.y, p.z);
+        }
+
+        public double density(double x, double y, double z) {
+            return kernel.eval(x, y, z);
+        }
+
+        @Override
+        public void densityBatch(double[] xs, double[] ys, double[] zs, double[] out, int n) {
+            batch.eval(xs, ys, zs, out, n);
+        }
+
+        /**
+         * Fills out[(iz*ny + iy)*nx + ix] with the density at (x0 + ix*dx, y0 + iy*dy, z0 + iz*dz);
+         * the layout of {@link Noise#fillFbm3}. Runs down y innermost so column memos hit.
+         */
+        public void fillLattice(double[] out, double x0, double y0, double z0,
+                                double dx, double dy, double dz, int nx, int ny, int nz) {
+            Kernel k = kernel;
+            for (int iz = 0; iz < nz; iz++) {
+                double z = z0 + iz * dz;
+                for (int ix = 0; ix < nx; ix++) {
+                    double x = x0 + ix * dx;
+                    for (int iy = 0; iy < ny; iy++) {
+                        out[(iz * ny + iy) * nx + ix] = k.eval(x, y0 + iy * dy, z);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean densityBounds(double x0, double y0, double z0,
+                                     double x1, double y1, double z1, double[] range) {
+            root.bounds(seed, x0, y0, z0, x1, y1, z1, range);
+            return true;
+        }
+    }
+
+    // ===== Text specs =====
+
+    /** Parses the syntax in the class comment; IllegalArgumentException on errors. */
+    public static Node parse(String spec) {
+        Parser p = new Parser(spec);
+        Node n = p.expr();
+        p.skipSpace();
+        if (p.pos != spec.length()) throw p.error("unexpected '" + spec.charAt(p.pos) + "'");
+        return n;
+    }
+
+    private static final class Parser {
+        final String s;
+        int pos;
+
+        Parser(String s) { this.s = s; }
+
+        IllegalArgumentException error(String msg) {
+            return new IllegalArgumentException(msg + " at position " + pos + " in: " + s);
+        }
+
+        void skipSpace() {
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++;
+        }
+
+        Node expr() {
+            skipSpace();
+            if (pos >= s.length()) throw error("expression expected");
+            char c = s.charAt(pos);
+            if (c == '-' || c == '+' || c == '.' || Character.isDigit(c)) return new Const(number());
+
+            int start = pos;
+            while (pos < s.length() && (Character.isLetterOrDigit(s.charAt(pos)) || s.charAt(pos) == '_')) pos++;
+            if (start == pos) throw error("unexpected '" + c + "'");
+            String name = s.substring(start, pos);
+
+            skipSpace();
+            if (pos >= s.length() || s.charAt(pos) != '(') {
+                return switch (name) {
+                    case "x" -> x();
+                    case "y" -> y();
+                    case "z" -> z();
+                    default -> throw error("unknown name '" + name + "'");
+                };
+            }
+            pos++;
+            List<Node> args = new ArrayList<>();
+            skipSpace();
+            if (pos < s.length() && s.charAt(pos) == ')') {
+                pos++;
+            } else {
+                while (true) {
+                    args.add(expr());
+                    skipSpace();
+                    if (pos >= s.length()) throw error("')' expected");
+                    char d = s.charAt(pos++);
+                    if (d == ')') break;
+                    if (d != ',') { pos--; throw error("',' or ')' expected"); }
+                }
+            }
+            return call(name, args, start);
+        }
+
+        double number() {
+            int start = pos;
+            while (pos < s.length() && "+-.eE0123456789".indexOf(s.charAt(pos)) >= 0) pos++;
+            try {
+                return Double.parseDouble(s.substring(start, pos));
+            } catch (NumberFormatException e) {
+                pos = start;
+                throw error("bad number");
+            }
+        }
+
+        Node call(String name, List<Node> a, int at) {
+            Node[] all = a.toArray(new Node[0]);
+            return switch (name) {
+                case "add" -> add(all);
+                case "mul" -> mul(all);
+                case "min" -> min(all);
+                case "max" -> max(all);
+                case "sub" -> {
+                    arity(name, a, 2, 2, at);
+                    yield sub(a.get(0), a.get(1));
+                }
+                case "neg" -> {
+                    arity(name, a, 1, 1, at);
+                    yield neg(a.get(0));
+                }
+                case "clamp" -> {
+                    arity(name, a, 3, 3, at);
+                    yield clamp(a.get(0), num(a, 1, name, at), num(a, 2, name, at));
+                }
+                case "threshold" -> {
+                    arity(name, a, 2, 2, at);
+                    yield threshold(num(a, 0, name, at), a.get(1));
+                }
+                case "ground" -> {
+                    arity(name, a, 3, 3, at);
+                    yield ground(a.get(0), num(a, 1, name, at), a.get(2));
+                }
+                case "warp" -> {
+                    arity(name, a, 5, 5, at);
+                    yield warp(num(a, 0, name, at), num(a, 1, name, at), (int) num(a, 2, name, at), (long) num(a, 3, name, at), a.get(4));
+                }
+                case "fbm2", "fbm3", "ridged" -> {
+                    arity(name, a, 3, 5, at);
+                    if (a.size() == 4) throw error(name + ": give both lacunarity and gain");
+                    double freq = num(a, 0, name, at);
+                    int octaves = (int) num(a, 1, name, at);
+                    long seedOffset = (long) num(a, 2, name, at);
+                    double lac = a.size() == 5 ? num(a, 3, name, at) : 2.0;
+                    double gain = a.size() == 5 ? num(a, 4, name, at) : 0.5;
+                    NoiseKind kind = name.equals("fbm2") ? NoiseKind.FBM2 : name.equals("fbm3") ? NoiseKind.FBM3 : NoiseKind.RIDGED;
+                    yield new NoiseNode(kind, freq, octaves, seedOffset, lac, gain);
+                }
+                default -> {
+                    pos = at;
+                    throw error("unknown node '" + name + "'");
+                }
+            };
+        }
+
+        void arity(String name, List<Node> a, int min, int max, int at) {
+            if (a.size() < min || a.size() > max) {
+                pos = at;
+                throw error(name + " takes " + (min == max ? String.valueOf(min) : min + ".." + max) + " arguments, got " + a.size());
+            }
+        }
+
+        double num(List<Node> a, int i, String name, int at) {
+            if (!(a.get(i) instanceof Const c)) {
+                pos = at;
+                throw error(name + ": argument " + (i + 1) + " must be a number");
+            }
+            return c.value;
+        }
+    }
+}
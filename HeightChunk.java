@@ -0,0 +1,41 @@
+/**
+ * A square tile of the unbounded heightmap produced by
+ * {@link PerlinTerrainGenerator#generateChunk}. Chunk (cx, cz) covers lattice
+ * samples [cx*size, cx*size + size] on both axes, so neighbours share an edge.
+ */
+public final class HeightChunk {
+    public final int chunkX, chunkZ;
+    public final int size;             // cells per side; heights has size+1 samples per side
+    public final double spacing;
+    public final double[][] heights;   // [z][x]
+
+    public HeightChunk(int chunkX, int chunkZ, int size, double spacing, double[][] heights) {
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+        this.size = size;
+        this.spacing = spacing;
+        this.heights = heights;
+    }
+
+    /** World x of local sample column x. */
+    public double worldX(int x) {
+        return ((long) chunkX * size + x) * spacing;
+    }
+
+    /** World z of local sample row z. */
+    public double worldZ(int z) {
+        return ((long) chunkZ * size + z) * spacing;
+    }
+
+    public double minHeight() {
+        double m = Double.POSITIVE_INFINITY;
+        for (double[] row : heights) for (double h : row) if (h < m) m = h;
+        return m;
+    }
+
+    public double maxHeight() {
+        double m = Double.NEGATIVE_INFINITY;
+        for (double[] row : heights) for (double h : row) if (h > m) m = h;
+        return m;
+    }
+}
@@ -0,0 +1,5 @@
+/** Terrain height as a function of the horizontal position. */
+@FunctionalInterface
+public interface HeightFunction {
+    double height(double x, double z);
+}
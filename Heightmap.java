@@ -0,0 +1,153 @@
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * A heightmap in one flat row-major array: sample (x, z) is data[z * width + x].
+ * One allocation instead of an array object per row, and rows sit back to back
+ * for the smoothing passes.
+ */
+public final class Heightmap {
+    public final int width;    // samples along x
+    public final int depth;    // samples along z
+    public final double[] data;   // double in float storage mode too, just rounded
+
+    public Heightmap(int width, int depth) {
+        this(width, depth, new double[Math.multiplyExact(width, depth)]);
+    }
+
+    public Heightmap(int width, int depth, double[] data) {
+        if (width < 0 || depth < 0 || data.length != (long) width * depth) {
+            throw new IllegalArgumentException("expected " + width + "x" + depth + " samples, got " + data.length);
+        }
+        this.width = width;
+        this.depth = depth;
+        this.data = data;
+    }
+
+    /** Copies a rectangular [z][x] array. */
+    public static Heightmap fromRows(double[][] rows) {
+        int depth = rows.length;
+        int width = (depth == 0) ? 0 : rows[0].length;
+        Heightmap h = new Heightmap(width, depth);
+        for (int z = 0; z < depth; z++) System.arraycopy(rows[z], 0, h.data, z * width, width);
+        return h;
+    }
+
+    public double get(int x, int z) {
+        return data[z * width + x];
+    }
+
+    public void set(int x, int z, double h) {
+        data[z * width + x] = h;
+    }
+
+    /** The w x d window starting at (x0, z0) as a [z][x] array. */
+    public double[][] rows(int x0, int z0, int w, int d) {
+        double[][] out = new double[d][w];
+        for (int z = 0; z < d; z++) System.arraycopy(data, (z0 + z) * width + x0, out[z], 0, w);
+        return out;
+    }
+
+    public double min() {
+        double m = Double.POSITIVE_INFINITY;
+        for (double h : data) if (h < m) m = h;
+        return m;
+    }
+
+    public double max() {
+        double m = Double.NEGATIVE_INFINITY;
+        for (double h : data) if (h > m) m = h;
+        return m;
+    }
+
+    // ===== Smoothing =====
+
+    /**
+     * iterations passes of the 3x3 mean; border samples average only the
+     * neighbours that exist. Each pass is separable: a horizontal 3-tap sum into
+     * a scratch buffer, then a vertical 3-tap sum written straight back into
+     * data, so nothing is copied back. The horizontal taps slide through
+     * registers, which leaves about four array reads per sample and pass
+     * instead of nine.
+     *
+     * Every sum adds its taps in a fixed order, never as a running total, so a
+     * sample's value depends only on its neighbourhood. Chunked generation relies
+     * on that to agree with its neighbours. Row bands run on pool (null = serial)
+     * with identical results.
+     */
+    public void smooth(int iterations, ForkJoinPool pool) {
+        if (iterations <= 0 || data.length == 0) return;
+        double[] sums = new double[data.length];
+        for (int it = 0; it < iterations; it++) {
+            forEachBand(pool, depth, (z0, z1) -> rowSums(data, sums, width, z0, z1));
+            forEachBand(pool, depth, (z0, z1) -> columnMeans(sums, data, width, depth, z0, z1));
+        }
+    }
+
+    /** out = left + centre + right per sample, clamped at the row ends. */
+    private static void rowSums(double[] src, double[] out, int w, int z0, int z1) {
+        for (int z = z0; z < z1; z++) {
+            int o = z * w;
+            if (w == 1) {
+                out[o] = src[o];
+                continue;
+            }
+            double a = src[o], b = src[o + 1];
+            out[o] = a + b;
+            for (int x = 1; x < w - 1; x++) {
+                double c = src[o + x + 1];
+                out[o + x] = (a + b) + c;
+                a = b;
+                b = c;
+            }
+            out[o + w - 1] = a + b;
+        }
+    }
+
+    /** out = (up + centre + down) / taps, where taps counts both passes' neighbours. */
+    private static void columnMeans(double[] s, double[] out, int w, int d, int z0, int z1) {
+        for (int z = z0; z < z1; z++) {
+            int o = z * w;
+            boolean up = z > 0, down = z < d - 1;
+            int rowsUsed = 1 + (up ? 1 : 0) + (down ? 1 : 0);
+
+            if (w == 1) {
+                out[o] = columnSum(s, o, w, up, down) / rowsUsed;
+                continue;
+            }
+            out[o] = columnSum(s, o, w, up, down) / (rowsUsed * 2);
+            out[o + w - 1] = columnSum(s, o + w - 1, w, up, down) / (rowsUsed * 2);
+
+            double taps = rowsUsed * 3;
+            int end = o + w - 1;
+            if (up && down) {
+                for (int i = o + 1; i < end; i++) out[i] = ((s[i - w] + s[i]) + s[i + w]) / taps;
+            } else {
+                for (int i = o + 1; i < end; i++) out[i] = columnSum(s, i, w, up, down) / taps;
+            }
+        }
+    }
+
+    private static double columnSum(double[] s, int i, int w, boolean up, boolean down) {
+        if (up && down) return (s[i - w] + s[i]) + s[i + w];
+        if (up) return s[i - w] + s[i];
+        if (down) return s[i] + s[i + w];
+        return s[i];
+    }
+
+    // ===== Row-band parallelism =====
+
+    private static final int BAND_ROWS = 32;
+
+    interface RowBand {
+        void run(int z0, int z1);
+    }
+
+    /** Runs band over [0, rows) in bands of BAND_ROWS on pool, or in one call if pool is null. */
+    static void forEachBand(ForkJoinPool pool, int rows, RowBand band) {
+        if (pool == null || rows <= BAND_ROWS) {
+            band.run(0, rows);
+        } else {
+            Parallel.forRange(pool, rows, BAND_ROWS, band::run);
+        }
+    }
+}
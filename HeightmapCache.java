@@ -0,0 +1,159 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * On-disk cache of smoothed heightmaps, content-addressed by the generation
+ * relevant {@link TerrainSettings} fields (presentation fields such as spacing,
+ * drawRows/drawCols and strokeMin/Max do not change the heights and are left out).
+ *
+ * Entries are {@link TerrainIO} heightmap files, read back through a memory
+ * mapping and checked against their CRC32C and stored settings; a bad entry is
+ * deleted and treated as a miss. Least recently used entries are evicted once
+ * the directory grows past maxBytes (recency survives restarts via mtime).
+ */
+public final class HeightmapCache {
+    /** Bump when the heightmap algorithm changes so old entries stop matching. */
+    private static final int GENERATOR_VERSION = 2;   // 2: separable smoothing (rounds differently)
+    private static final String SUFFIX = ".hmap";
+
+    private final Path dir;
+    private final long maxBytes;
+
+    // key -> file size, in access order (eldest = least recently used)
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    public HeightmapCache(Path dir, long maxBytes) throws IOException {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(dir);
+
+        // rebuild LRU order from modification times
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path p : ds) files.add(p);
+        }
+        files.sort((a, b) -> lastModified(a).compareTo(lastModified(b)));
+        for (Path p : files) {
+            String name = p.getFileName().toString();
+            long size = Files.size(p);
+            entries.put(name.substring(0, name.length() - SUFFIX.length()), size);
+            totalBytes += size;
+        }
+    }
+
+    /** Stable hex key over the fields that affect the smoothed heightmap. */
+    public static String key(TerrainSettings ts) {
+        String canonical = "hmap"
+                + "|" + GENERATOR_VERSION
+                + "|" + Math.max(2, ts.gridX)
+                + "|" + Math.max(2, ts.gridZ)
+                + "|" + ts.seed
+                + "|" + Double.doubleToLongBits(ts.noiseScale)
+                + "|" + Double.doubleToLongBits(ts.amplitude)
+                + "|" + ts.octaves
+                + "|" + Double.doubleToLongBits(ts.persistence)
+                + "|" + Double.doubleToLongBits(ts.lacunarity)
+                + "|" + ts.ridgedMountains
+                + "|" + ts.valleys
+                + "|" + Double.doubleToLongBits(ts.sharpness)
+                + (ts.floatPrecision ? "|f32" : "");   // suffix only, so double entries keep their keys
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(40);
+            for (int i = 0; i < 20; i++) sb.append(String.format("%02x", d[i]));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /** Cached heightmap for ts, or null on a miss (or a corrupt entry, which is removed). */
+    public synchronized Heightmap get(TerrainSettings ts) {
+        String key = key(ts);
+        if (entries.get(key) == null) return null;
+
+        Path file = fileFor(key);
+        try {
+            TerrainIO.TerrainFile f = TerrainIO.read(file);
+            if (f.kind != TerrainIO.KIND_HEIGHTMAP || f.settings == null || !key(f.settings).equals(key)) {
+                throw new IOException(file + ": entry does not match its key");
+            }
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return f.heights;
+        } catch (IOException | RuntimeException e) {   // anything unreadable is just a miss
+            remove(key);
+            return null;
+        }
+    }
+
+    /** Stores H (as returned by the generator) and evicts LRU entries past the size cap. */
+    public synchronized void put(TerrainSettings ts, Heightmap H) throws IOException {
+        String key = key(ts);
+        Path file = fileFor(key);
+        Path tmp = dir.resolve(key + ".tmp");
+
+        TerrainIO.writeHeightmap(tmp, ts, ts.seed, H);
+        long size = Files.size(tmp);
+        if (size > maxBytes) {
+            Files.deleteIfExists(tmp);
+            return;
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        Long old = entries.put(key, size);
+        totalBytes += size - (old != null ? old : 0);
+        evict();
+    }
+
+    public synchronized long sizeBytes() {
+        return totalBytes;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> e = it.next();
+            try {
+                Files.deleteIfExists(fileFor(e.getKey()));
+            } catch (IOException ignored) {
+                // still drop it from the index; a stray file is re-indexed on next start
+            }
+            totalBytes -= e.getValue();
+            it.remove();
+        }
+    }
+
+    private void remove(String key) {
+        Long size = entries.remove(key);
+        if (size != null) totalBytes -= size;
+        try {
+            Files.deleteIfExists(fileFor(key));
+        } catch (IOException ignored) {
+        }
+    }
+
+    private Path fileFor(String key) {
+        return dir.resolve(key + SUFFIX);
+    }
+
+    private static FileTime lastModified(Path p) {
+        try {
+            return Files.getLastModifiedTime(p);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
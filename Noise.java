@@ -1,3 +1,5 @@
+import java.util.Arrays;
+
 public final class Noise {
     private Noise() {}
 
@@ -10,7 +12,7 @@ public final class Noise {
         return a + (b - a) * t;
     }
 
-    private static long hash3(int x, int y, int z, long seed) {
+    private static long hash3(long x, long y, long z, long seed) {
         long h = seed;
         h ^= x * 0x9E3779B97F4A7C15L;
         h ^= y * 0xC2B2AE3D27D4EB4FL;
@@ -23,15 +25,31 @@ public final class Noise {
         return h;
     }
 
+    /** hash3(x, 0, z, seed): the y term vanishes, so 2D lookups stay consistent with the 3D lattice. */
+    private static long hash2(long x, long z, long seed) {
+        long h = seed;
+        h ^= x * 0x9E3779B97F4A7C15L;
+        h ^= z * 0x165667B19E3779F9L;
+        h ^= (h >>> 27);
+        h *= 0x3C79AC492BA7B653L;
+        h ^= (h >>> 33);
+        h *= 0x1C69B3F74AC4AE35L;
+        h ^= (h >>> 27);
+        return h;
+    }
+
     private static double hashToUnit(long h) {
         // [0,1)
         return ((h >>> 11) * (1.0 / (1L << 53)));
     }
 
+    // Lattice cells are longs: an int floor saturates past 2^31 and leaves a huge
+    // cell offset, and SimdNoise's lanes floor to long as well.
+
     /** Value noise in [-1,1]. */
     public static double valueNoise3(double x, double y, double z, long seed) {
-        int x0 = (int) Math.floor(x), y0 = (int) Math.floor(y), z0 = (int) Math.floor(z);
-        int x1 = x0 + 1, y1 = y0 + 1, z1 = z0 + 1;
+        long x0 = (long) Math.floor(x), y0 = (long) Math.floor(y), z0 = (long) Math.floor(z);
+        long x1 = x0 + 1, y1 = y0 + 1, z1 = z0 + 1;
 
         double tx = x - x0, ty = y - y0, tz = z - z0;
         double u = fade(tx), v = fade(ty), w = fade(tz);
@@ -56,15 +74,52 @@ public final class Noise {
         return lerp(y0v, y1v, w);
     }
 
+    /** 2D value noise in [-1,1]. Same values as valueNoise3(x, 0, z, seed), with 4 corners instead of 8. */
+    public static double valueNoise2(double x, double z, long seed) {
+        long x0 = (long) Math.floor(x), z0 = (long) Math.floor(z);
+        long x1 = x0 + 1, z1 = z0 + 1;
+
+        double u = fade(x - x0), w = fade(z - z0);
+
+        double c00 = hashToUnit(hash2(x0,z0,seed)) * 2 - 1;
+        double c10 = hashToUnit(hash2(x1,z0,seed)) * 2 - 1;
+        double c01 = hashToUnit(hash2(x0,z1,seed)) * 2 - 1;
+        double c11 = hashToUnit(hash2(x1,z1,seed)) * 2 - 1;
+
+        return lerp(lerp(c00, c10, u), lerp(c01, c11, u), w);
+    }
+
     /** Fractal Brownian motion in roughly [-1,1]. */
     public static double fbm3(Vector3 p, double baseFreq, int octaves, double lacunarity, double gain, long seed) {
+        return fbm3(p.x, p.y, p.z, baseFreq, octaves, lacunarity, gain, seed);
+    }
+
+    /** Fractal Brownian motion in roughly [-1,1]. Allocation-free. */
+    public static double fbm3(double x, double y, double z, double baseFreq, int octaves, double lacunarity, double gain, long seed) {
+        double amp = 1.0;
+        double freq = baseFreq;
+        double sum = 0.0;
+        double norm = 0.0;
+
+        for (int i = 0; i < octaves; i++) {
+            double n = valueNoise3(x * freq, y * freq, z * freq, seed + i * 1337L);
+            sum += n * amp;
+            norm += amp;
+            amp *= gain;
+            freq *= lacunarity;
+        }
+        return sum / Math.max(1e-9, norm);
+    }
+
+    /** Ridged multi-octave noise in [0,1]: octaves of 1 - |valueNoise3|, peaking along the noise's zero set. */
+    public static double ridged3(double x, double y, double z, double baseFreq, int octaves, double lacunarity, double gain, long seed) {
         double amp = 1.0;
         double freq = baseFreq;
         double sum = 0.0;
         double norm = 0.0;
 
         for (int i = 0; i < octaves; i++) {
-            double n = valueNoise3(p.x * freq, p.y * freq, p.z * freq, seed + i * 1337L);
+            double n = 1.0 - Math.abs(valueNoise3(x * freq, y * freq, z * freq, seed + i * 1337L));
             sum += n * amp;
             norm += amp;
             amp *= gain;
@@ -73,9 +128,302 @@ public final class Noise {
         return sum / Math.max(1e-9, norm);
     }
 
-    /** 2D fbm using 3D noise with y=0. */
+    /** 2D fbm; equals fbm3 at y=0 but only samples the 2D lattice. */
     public static double fbm2(double x, double z, double baseFreq, int octaves, double lacunarity, double gain, long seed) {
-        Vector3 p = new Vector3(x, 0, z);
-        return fbm3(p, baseFreq, octaves, lacunarity, gain, seed);
+        double amp = 1.0;
+        double freq = baseFreq;
+        double sum = 0.0;
+        double norm = 0.0;
+
+        for (int i = 0; i < octaves; i++) {
+            double n = valueNoise2(x * freq, z * freq, seed + i * 1337L);
+            sum += n * amp;
+            norm += amp;
+            amp *= gain;
+            freq *= lacunarity;
+        }
+        return sum / Math.max(1e-9, norm);
+    }
+
+    // ===== Range bounds =====
+    // Value noise interpolates its cell corners with weights in [0,1], so over any box
+    // an octave stays within the min/max of the lattice values covering that box.
+    // Octaves whose box covers more than RANGE_CORNERS corners fall back to [-1,1].
+
+    private static final int RANGE_CORNERS = 512;
+    private static final double RANGE_EPS = 1e-9;   // covers rounding in the lerps
+
+    /** Conservative bounds of fbm3 over [x0,x1]x[y0,y1]x[z0,z1], written to range[0..1]. */
+    public static void fbm3Range(double x0, double y0, double z0, double x1, double y1, double z1,
+                                 double baseFreq, int octaves, double lacunarity, double gain, long seed,
+                                 double[] range) {
+        double amp = 1.0;
+        double freq = baseFreq;
+        double lo = 0.0, hi = 0.0, norm = 0.0;
+
+        for (int i = 0; i < octaves; i++) {
+            long ax = (long) Math.floor(Math.min(x0 * freq, x1 * freq)), bx = (long) Math.floor(Math.max(x0 * freq, x1 * freq)) + 1;
+            long ay = (long) Math.floor(Math.min(y0 * freq, y1 * freq)), by = (long) Math.floor(Math.max(y0 * freq, y1 * freq)) + 1;
+            long az = (long) Math.floor(Math.min(z0 * freq, z1 * freq)), bz = (long) Math.floor(Math.max(z0 * freq, z1 * freq)) + 1;
+
+            double mn = -1, mx = 1;
+            if (bx - ax < RANGE_CORNERS && by - ay < RANGE_CORNERS && bz - az < RANGE_CORNERS
+                    && (bx - ax + 1) * (by - ay + 1) * (bz - az + 1) <= RANGE_CORNERS) {
+                mn = 1; mx = -1;
+                long s = seed + i * 1337L;
+                for (long cz = az; cz <= bz; cz++) {
+                    for (long cy = ay; cy <= by; cy++) {
+                        for (long cx = ax; cx <= bx; cx++) {
+                            double c = hashToUnit(hash3(cx, cy, cz, s)) * 2 - 1;
+                            mn = Math.min(mn, c);
+                            mx = Math.max(mx, c);
+                        }
+                    }
+                }
+            }
+            lo += Math.min(mn * amp, mx * amp);
+            hi += Math.max(mn * amp, mx * amp);
+            norm += amp;
+            amp *= gain;
+            freq *= lacunarity;
+        }
+        norm = Math.max(1e-9, norm);
+        range[0] = lo / norm - RANGE_EPS;
+        range[1] = hi / norm + RANGE_EPS;
+    }
+
+    /** Conservative bounds of fbm2 over [x0,x1]x[z0,z1], written to range[0..1]. */
+    public static void fbm2Range(double x0, double z0, double x1, double z1,
+                                 double baseFreq, int octaves, double lacunarity, double gain, long seed,
+                                 double[] range) {
+        double amp = 1.0;
+        double freq = baseFreq;
+        double lo = 0.0, hi = 0.0, norm = 0.0;
+
+        for (int i = 0; i < octaves; i++) {
+            long ax = (long) Math.floor(Math.min(x0 * freq, x1 * freq)), bx = (long) Math.floor(Math.max(x0 * freq, x1 * freq)) + 1;
+            long az = (long) Math.floor(Math.min(z0 * freq, z1 * freq)), bz = (long) Math.floor(Math.max(z0 * freq, z1 * freq)) + 1;
+
+            double mn = -1, mx = 1;
+            if (bx - ax < RANGE_CORNERS && bz - az < RANGE_CORNERS && (bx - ax + 1) * (bz - az + 1) <= RANGE_CORNERS) {
+                mn = 1; mx = -1;
+                long s = seed + i * 1337L;
+                for (long cz = az; cz <= bz; cz++) {
+                    for (long cx = ax; cx <= bx; cx++) {
+                        double c = hashToUnit(hash2(cx, cz, s)) * 2 - 1;
+                        mn = Math.min(mn, c);
+                        mx = Math.max(mx, c);
+                    }
+                }
+            }
+            lo += Math.min(mn * amp, mx * amp);
+            hi += Math.max(mn * amp, mx * amp);
+            norm += amp;
+            amp *= gain;
+            freq *= lacunarity;
+        }
+        norm = Math.max(1e-9, norm);
+        range[0] = lo / norm - RANGE_EPS;
+        range[1] = hi / norm + RANGE_EPS;
+    }
+
+    // ===== Batch evaluation =====
+    // Sample coordinates are x0 + ix*dx (etc.), i.e. exactly what a caller looping over
+    // fbm2/fbm3 would pass, and the arithmetic follows the scalar kernels step by step,
+    // so batch results are bit-identical to the per-sample calls.
+    //
+    // Each row is done in two passes per octave: a scalar lattice walk that only
+    // re-hashes corners when the sample crosses into a new cell, then a branch-free
+    // pass over primitive arrays that C2's superword pass can vectorize.
+
+    /** Fills out[iz*nx + ix] with fbm2(x0 + ix*dx, z0 + iz*dz, ...). */
+    public static void fillFbm2(double[] out,
+                                double x0, double z0, double dx, double dz, int nx, int nz,
+                                double baseFreq, int octaves, double lacunarity, double gain, long seed) {
+        RowScratch s = new RowScratch(nx, 4);
+        for (int ix = 0; ix < nx; ix++) s.xs[ix] = x0 + ix * dx;
+
+        for (int iz = 0; iz < nz; iz++) {
+            int off = iz * nx;
+            double z = z0 + iz * dz;
+            Arrays.fill(out, off, off + nx, 0.0);
+
+            double amp = 1.0;
+            double freq = baseFreq;
+            double norm = 0.0;
+            for (int o = 0; o < octaves; o++) {
+                row2(out, off, nx, s, z * freq, freq, amp, seed + o * 1337L);
+                norm += amp;
+                amp *= gain;
+                freq *= lacunarity;
+            }
+            normalize(out, off, nx, Math.max(1e-9, norm));
+        }
+    }
+
+    /** Fills out[(iz*ny + iy)*nx + ix] with fbm3(x0 + ix*dx, y0 + iy*dy, z0 + iz*dz, ...). */
+    public static void fillFbm3(double[] out,
+                                double x0, double y0, double z0,
+                                double dx, double dy, double dz,
+                                int nx, int ny, int nz,
+                                double baseFreq, int octaves, double lacunarity, double gain, long seed) {
+        RowScratch s = new RowScratch(nx, 8);
+        for (int ix = 0; ix < nx; ix++) s.xs[ix] = x0 + ix * dx;
+
+        for (int iz = 0; iz < nz; iz++) {
+            double z = z0 + iz * dz;
+            for (int iy = 0; iy < ny; iy++) {
+                int off = (iz * ny + iy) * nx;
+                double y = y0 + iy * dy;
+                Arrays.fill(out, off, off + nx, 0.0);
+
+                double amp = 1.0;
+                double freq = baseFreq;
+                double norm = 0.0;
+                for (int o = 0; o < octaves; o++) {
+                    row3(out, off, nx, s, y * freq, z * freq, freq, amp, seed + o * 1337L);
+                    norm += amp;
+                    amp *= gain;
+                    freq *= lacunarity;
+                }
+                normalize(out, off, nx, Math.max(1e-9, norm));
+            }
+        }
+    }
+
+    // ===== Point batches =====
+    // Arbitrary sample positions, e.g. the surviving samples of a gated density slab.
+    // Runs on SimdNoise when the vector module is available, with identical results.
+
+    /** out[i] = fbm3(xs[i], ys[i], zs[i], ...) for i < n. */
+    public static void fbm3(double[] xs, double[] ys, double[] zs, double[] out, int n,
+                            double baseFreq, int octaves, double lacunarity, double gain, long seed) {
+        fbm3(SimdNoise.INSTANCE, xs, ys, zs, out, n, baseFreq, octaves, lacunarity, gain, seed);
+    }
+
+    /** out[i] = fbm2(xs[i], zs[i], ...) for i < n. */
+    public static void fbm2(double[] xs, double[] zs, double[] out, int n,
+                            double baseFreq, int octaves, double lacunarity, double gain, long seed) {
+        fbm2(SimdNoise.INSTANCE, xs, zs, out, n, baseFreq, octaves, lacunarity, gain, seed);
+    }
+
+    /** As above on an explicit backend; null is the scalar path. */
+    static void fbm3(SimdNoise simd, double[] xs, double[] ys, double[] zs, double[] out, int n,
+                     double baseFreq, int octaves, double lacunarity, double gain, long seed) {
+        if (simd != null) {
+            simd.fbm3(xs, ys, zs, out, n, baseFreq, octaves, lacunarity, gain, seed);
+            return;
+        }
+        for (int i = 0; i < n; i++) out[i] = fbm3(xs[i], ys[i], zs[i], baseFreq, octaves, lacunarity, gain, seed);
+    }
+
+    static void fbm2(SimdNoise simd, double[] xs, double[] zs, double[] out, int n,
+                     double baseFreq, int octaves, double lacunarity, double gain, long seed) {
+        if (simd != null) {
+            simd.fbm2(xs, zs, out, n, baseFreq, octaves, lacunarity, gain, seed);
+            return;
+        }
+        for (int i = 0; i < n; i++) out[i] = fbm2(xs[i], zs[i], baseFreq, octaves, lacunarity, gain, seed);
+    }
+
+    private static final class RowScratch {
+        final double[] xs, t;
+        final double[][] c;
+
+        RowScratch(int n, int corners) {
+            xs = new double[n];
+            t = new double[n];
+            c = new double[corners][n];
+        }
+    }
+
+    /** One octave of 2D value noise along a row, accumulated into out[off..off+n). */
+    private static void row2(double[] out, int off, int n, RowScratch s, double z, double freq, double amp, long seed) {
+        long z0 = (long) Math.floor(z), z1 = z0 + 1;
+        double w = fade(z - z0);
+
+        double[] xs = s.xs, t = s.t;
+        double[] c00 = s.c[0], c10 = s.c[1], c01 = s.c[2], c11 = s.c[3];
+
+        long cell = Long.MIN_VALUE;
+        double l0 = 0, l1 = 0, r0 = 0, r1 = 0;   // corners at x0 (left) / x1 (right), for z0 / z1
+        for (int i = 0; i < n; i++) {
+            double x = xs[i] * freq;
+            long x0 = (long) Math.floor(x);
+            t[i] = x - x0;
+            if (x0 != cell) {
+                if (x0 == cell + 1) {
+                    l0 = r0; l1 = r1;
+                } else {
+                    l0 = hashToUnit(hash2(x0,z0,seed)) * 2 - 1;
+                    l1 = hashToUnit(hash2(x0,z1,seed)) * 2 - 1;
+                }
+                r0 = hashToUnit(hash2(x0 + 1,z0,seed)) * 2 - 1;
+                r1 = hashToUnit(hash2(x0 + 1,z1,seed)) * 2 - 1;
+                cell = x0;
+            }
+            c00[i] = l0; c10[i] = r0;
+            c01[i] = l1; c11[i] = r1;
+        }
+
+        for (int i = 0; i < n; i++) {
+            double u = fade(t[i]);
+            double v = lerp(lerp(c00[i], c10[i], u), lerp(c01[i], c11[i], u), w);
+            out[off + i] += v * amp;
+        }
+    }
+
+    /** One octave of 3D value noise along a row, accumulated into out[off..off+n). */
+    private static void row3(double[] out, int off, int n, RowScratch s, double y, double z, double freq, double amp, long seed) {
+        long y0 = (long) Math.floor(y), z0 = (long) Math.floor(z);
+        long y1 = y0 + 1, z1 = z0 + 1;
+        double v = fade(y - y0), w = fade(z - z0);
+
+        double[] xs = s.xs, t = s.t;
+        double[] c000 = s.c[0], c100 = s.c[1], c010 = s.c[2], c110 = s.c[3];
+        double[] c001 = s.c[4], c101 = s.c[5], c011 = s.c[6], c111 = s.c[7];
+
+        long cell = Long.MIN_VALUE;
+        double l00 = 0, l10 = 0, l01 = 0, l11 = 0;   // left column, indexed [y][z]
+        double r00 = 0, r10 = 0, r01 = 0, r11 = 0;   // right column
+        for (int i = 0; i < n; i++) {
+            double x = xs[i] * freq;
+            long x0 = (long) Math.floor(x);
+            t[i] = x - x0;
+            if (x0 != cell) {
+                if (x0 == cell + 1) {
+                    l00 = r00; l10 = r10; l01 = r01; l11 = r11;
+                } else {
+                    l00 = hashToUnit(hash3(x0,y0,z0,seed)) * 2 - 1;
+                    l10 = hashToUnit(hash3(x0,y1,z0,seed)) * 2 - 1;
+                    l01 = hashToUnit(hash3(x0,y0,z1,seed)) * 2 - 1;
+                    l11 = hashToUnit(hash3(x0,y1,z1,seed)) * 2 - 1;
+                }
+                long x1 = x0 + 1;
+                r00 = hashToUnit(hash3(x1,y0,z0,seed)) * 2 - 1;
+                r10 = hashToUnit(hash3(x1,y1,z0,seed)) * 2 - 1;
+                r01 = hashToUnit(hash3(x1,y0,z1,seed)) * 2 - 1;
+                r11 = hashToUnit(hash3(x1,y1,z1,seed)) * 2 - 1;
+                cell = x0;
+            }
+            c000[i] = l00; c100[i] = r00;
+            c010[i] = l10; c110[i] = r10;
+            c001[i] = l01; c101[i] = r01;
+            c011[i] = l11; c111[i] = r11;
+        }
+
+        for (int i = 0; i < n; i++) {
+            double u = fade(t[i]);
+            double x00 = lerp(c000[i], c100[i], u);
+            double x10 = lerp(c010[i], c110[i], u);
+            double x01 = lerp(c001[i], c101[i], u);
+            double x11 = lerp(c011[i], c111[i], u);
+            double val = lerp(lerp(x00, x10, v), lerp(x01, x11, v), w);
+            out[off + i] += val * amp;
+        }
+    }
+
+    private static void normalize(double[] out, int off, int n, double norm) {
+        for (int i = off; i < off + n; i++) out[i] = out[i] / norm;
     }
 }
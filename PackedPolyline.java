@@ -0,0 +1,66 @@
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link PathGenerator} view of one polyline in a {@link PolylineBuffer}.
+ * The Vector3 / Double lists are only built on first access.
+ */
+public final class PackedPolyline implements PathGenerator, SegmentColorProvider {
+    private final PolylineBuffer buffer;
+    private final int index;
+
+    private List<Vector3> points;
+    private List<Double> segmentSizes;
+
+    public PackedPolyline(PolylineBuffer buffer, int index) {
+        this.buffer = buffer;
+        this.index = index;
+    }
+
+    @Override public void generate() { /* no-op */ }
+
+    @Override
+    public List<Vector3> getPoints() {
+        if (points == null) {
+            int start = buffer.pointStart(index);
+            int end = buffer.pointEnd(index);
+            float[] xyz = buffer.coords();
+            points = new ArrayList<>(end - start);
+            for (int p = start; p < end; p++) {
+                points.add(new Vector3(xyz[3 * p], xyz[3 * p + 1], xyz[3 * p + 2]));
+            }
+        }
+        return points;
+    }
+
+    @Override
+    public List<Double> getSegmentSizes() {
+        if (segmentSizes == null) {
+            int first = firstSegment();
+            int n = segmentCount();
+            segmentSizes = new ArrayList<>(n);
+            for (int k = 0; k < n; k++) segmentSizes.add((double) buffer.segmentSize(first + k));
+        }
+        return segmentSizes;
+    }
+
+    @Override
+    public WormSettings getSettings() {
+        return buffer.getSettings(index);
+    }
+
+    @Override
+    public Color getSegmentColor(int segmentIndex) {
+        if (segmentIndex < 0 || segmentIndex >= segmentCount()) return Color.WHITE;
+        return new Color(buffer.segmentColor(firstSegment() + segmentIndex), true);
+    }
+
+    private int firstSegment() {
+        return buffer.pointStart(index) - index;
+    }
+
+    private int segmentCount() {
+        return buffer.pointEnd(index) - buffer.pointStart(index) - 1;
+    }
+}
@@ -0,0 +1,46 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/** Fork/join parallel-for over an index range, for loops whose chunks write disjoint output. */
+final class Parallel {
+    private Parallel() {}
+
+    interface Range {
+        void run(int from, int to);
+    }
+
+    /**
+     * Runs body over [0, n) on pool, halving the range until a piece holds at most
+     * grain indices, or in one call if pool is null. Pass grain 1 when each index is
+     * already a sizeable chunk (a part, tile or block).
+     */
+    static void forRange(ForkJoinPool pool, int n, int grain, Range body) {
+        if (pool == null || n <= grain) {
+            if (n > 0) body.run(0, n);
+        } else {
+            pool.invoke(new RangeTask(body, 0, n, Math.max(1, grain)));
+        }
+    }
+
+    private static final class RangeTask extends RecursiveAction {
+        private final Range body;
+        private final int from, to, grain;
+
+        RangeTask(Range body, int from, int to, int grain) {
+            this.body = body;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                body.run(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeTask(body, from, mid, grain), new RangeTask(body, mid, to, grain));
+        }
+    }
+}
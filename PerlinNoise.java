@@ -1,3 +1,4 @@
+import java.util.Arrays;
 import java.util.Random;
 
 public class PerlinNoise {
@@ -72,4 +73,81 @@ public class PerlinNoise {
         }
         return (ampSum < 1e-9) ? 0.0 : sum / ampSum;
     }
+
+    /**
+     * Fills out[iy*nx + ix] with fbm(x0 + ix*dx, y0 + iy*dy, ...), bit-identical to the
+     * per-sample calls. Permutation lookups are only redone when a row crosses into a
+     * new lattice cell; fade/lerp run in a separate branch-free loop the JIT can vectorize.
+     */
+    public void fillFbm(double[] out, double x0, double y0, double dx, double dy, int nx, int ny,
+                        int octaves, double persistence, double lacunarity) {
+        fillFbmRegion(out, x0, y0, dx, dy, 0, nx, 0, ny, octaves, persistence, lacunarity);
+    }
+
+    /**
+     * The window [ix0, ix1) x [iy0, iy1) of the lattice grid (x0 + ix*dx, y0 + iy*dy),
+     * written to out[(iy - iy0)*(ix1 - ix0) + (ix - ix0)]. Indices may be negative.
+     * Lets callers fill a band or tile of a larger (or unbounded) grid with exactly
+     * the values a single fill over that grid would produce.
+     */
+    public void fillFbmRegion(double[] out, double x0, double y0, double dx, double dy,
+                              int ix0, int ix1, int iy0, int iy1,
+                              int octaves, double persistence, double lacunarity) {
+        int nx = ix1 - ix0;
+        double[] xs = new double[nx];
+        double[] t = new double[nx];
+        double[] g00 = new double[nx], g10 = new double[nx], g01 = new double[nx], g11 = new double[nx];
+        for (int ix = 0; ix < nx; ix++) xs[ix] = x0 + (ix0 + ix) * dx;
+
+        for (int iy = iy0; iy < iy1; iy++) {
+            int off = (iy - iy0) * nx;
+            double y = y0 + iy * dy;
+            Arrays.fill(out, off, off + nx, 0.0);
+
+            double amp = 1.0;
+            double freq = 1.0;
+            double ampSum = 0.0;
+            for (int o = 0; o < octaves; o++) {
+                double yy = y * freq;
+                int Y = (int) Math.floor(yy) & 255;
+                double yf = yy - Math.floor(yy);
+                double v = fade(yf);
+
+                int cell = -1;
+                int aa = 0, ab = 0, ba = 0, bb = 0;
+                for (int i = 0; i < nx; i++) {
+                    double x = xs[i] * freq;
+                    int X = (int) Math.floor(x) & 255;
+                    double xf = x - Math.floor(x);
+                    if (X != cell) {
+                        aa = p[p[X] + Y];
+                        ab = p[p[X] + Y + 1];
+                        ba = p[p[X + 1] + Y];
+                        bb = p[p[X + 1] + Y + 1];
+                        cell = X;
+                    }
+                    t[i] = xf;
+                    g00[i] = grad(aa, xf,     yf);
+                    g10[i] = grad(ba, xf - 1, yf);
+                    g01[i] = grad(ab, xf,     yf - 1);
+                    g11[i] = grad(bb, xf - 1, yf - 1);
+                }
+
+                for (int i = 0; i < nx; i++) {
+                    double u = fade(t[i]);
+                    double x1 = lerp(g00[i], g10[i], u);
+                    double x2 = lerp(g01[i], g11[i], u);
+                    out[off + i] += lerp(x1, x2, v) * amp;
+                }
+
+                ampSum += amp;
+                amp *= persistence;
+                freq *= lacunarity;
+            }
+
+            for (int i = off; i < off + nx; i++) {
+                out[i] = (ampSum < 1e-9) ? 0.0 : out[i] / ampSum;
+            }
+        }
+    }
 }
@@ -1,158 +1,274 @@
-import java.util.ArrayList;
+import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
 
 public class PerlinTerrainGenerator {
 
+    private static final int SMOOTH_ITERATIONS = 2;
+
 	double detail = 0.25;                 // 25% detail
 	int step = (int) Math.max(1, Math.round(1.0 / detail));  // 4
 
 	public static List<PathGenerator> generateWireframeDetail(TerrainSettings ts, double detail01) {
+	    return generateWireframeDetail(ts, detail01, null);
+	}
+
+	public static List<PathGenerator> generateWireframeDetail(TerrainSettings ts, double detail01, ForkJoinPool pool) {
+	    return PolylineBatch.toPathGenerators(generateWireframeDetailBatch(ts, detail01, pool));
+	}
+
+	public static PolylineBatch generateWireframeDetailBatch(TerrainSettings ts, double detail01, ForkJoinPool pool) {
 	    // detail01: (0, 1], where 1 = full detail, 0.25 = 4x stride
 	    if (detail01 <= 0) detail01 = 0.05;
 	    if (detail01 > 1) detail01 = 1.0;
 
 	    int step = (int) Math.max(1, Math.round(1.0 / detail01));
-	    return generateWireframe(ts, step);
+	    return generateWireframeBatch(ts, step, pool);
 	}
 
 	
     public static List<PathGenerator> generateWireframe(TerrainSettings ts, int step) {
-        PerlinNoise pn = new PerlinNoise(ts.seed);
-
-        
-        int gx = Math.max(2, ts.gridX);
-        int gz = Math.max(2, ts.gridZ);
+        return generateWireframe(ts, step, null);
+    }
 
-        double[][] H = new double[gz][gx];
-
-        // 1) Compute FULL heightmap
-        for (int z = 0; z < gz; z++) {
-            for (int x = 0; x < gx; x++) {
-                double nx = x * ts.noiseScale;
-                double nz = z * ts.noiseScale;
-
-                double n = pn.fbm(nx, nz, ts.octaves, ts.persistence, ts.lacunarity); // ~[-1,1]
-
-                double shaped;
-                if (ts.ridgedMountains) {
-                    double ridge = 1.0 - Math.abs(n);
-                    ridge = clamp01(ridge);
-                    shaped = Math.pow(ridge, ts.sharpness);
-                } else {
-                    double h01 = (n + 1.0) * 0.5;
-                    h01 = clamp01(h01);
-                    shaped = Math.pow(h01, ts.sharpness);
-                }
+    /**
+     * pool == null runs single-threaded. Otherwise the heightmap fill and each
+     * smoothing pass are split into row bands on the given pool; the output is
+     * bit-identical to the serial path.
+     */
+    public static List<PathGenerator> generateWireframe(TerrainSettings ts, int step, ForkJoinPool pool) {
+        return PolylineBatch.toPathGenerators(generateWireframeBatch(ts, step, pool));
+    }
 
-                double h = shaped * ts.amplitude;
-                if (ts.valleys) h = -h;
+    /** Same wireframe as {@link #generateWireframe}, packed into one primitive buffer. */
+    public static PolylineBatch generateWireframeBatch(TerrainSettings ts, int step, ForkJoinPool pool) {
+        WormSettings wireSettings = new WormSettings();
+        wireSettings.useRandomSegmentSizes = true;
+        wireSettings.fixedSegmentSize = 1.0;
+        wireSettings.minSegmentSize = ts.strokeMin;
+        wireSettings.maxSegmentSize = ts.strokeMax;
 
-                H[z][x] = h;
-            }
-        }
+        return generateMesh(ts, step, pool).toWireframe(wireSettings, ts.drawRows, ts.drawCols);
+    }
 
-        // 2) Smooth full heightmap (smooth surface)
-        smoothHeightmap(H, 2);
+    /**
+     * Indexed triangle mesh over every step-th heightmap sample, centred on the
+     * origin like the wireframe. Normals come from central differences on the
+     * sampled grid. Vertex and index buffers are filled in row bands on pool
+     * (null = serial).
+     */
+    public static TerrainMesh generateMesh(TerrainSettings ts, int step, ForkJoinPool pool) {
+        // 1) + 2) Full, smoothed heightmap
+        Heightmap H = buildHeightmap(ts, pool);
+        int gz = H.depth;
+        int gx = H.width;
 
         // 3) Find min/max AFTER smoothing (for coloring)
-        double minH = Double.POSITIVE_INFINITY;
-        double maxH = Double.NEGATIVE_INFINITY;
-        for (int z = 0; z < gz; z++) {
-            for (int x = 0; x < gx; x++) {
-                double h = H[z][x];
-                if (h < minH) minH = h;
-                if (h > maxH) maxH = h;
-            }
-        }
+        double minH = H.min();
+        double maxH = H.max();
 
         // 4) Geometry centering (computed once)
         double halfW = (gx - 1) * ts.spacing * 0.5;
         double halfD = (gz - 1) * ts.spacing * 0.5;
 
         // 5) LOD step used ONLY for sampling/drawing
-        step = Math.max(1, step);
+        int s = Math.max(1, step);
+        int cols = (gx + s - 1) / s;
+        int rows = (gz + s - 1) / s;
+
+        float[] vertices = new float[cols * rows * 3];
+        float[] normals = new float[cols * rows * 3];
+        Heightmap.forEachBand(pool, rows, (r0, r1) -> {
+            for (int r = r0; r < r1; r++) {
+                int z = r * s;
+                int zl = Math.max(0, r - 1) * s, zr = Math.min(rows - 1, r + 1) * s;
+                for (int c = 0; c < cols; c++) {
+                    int x = c * s;
+                    int xl = Math.max(0, c - 1) * s, xr = Math.min(cols - 1, c + 1) * s;
+                    int v = 3 * (r * cols + c);
+
+                    vertices[v]     = (float) (x * ts.spacing - halfW);
+                    vertices[v + 1] = (float) H.get(x, z);
+                    vertices[v + 2] = (float) (z * ts.spacing - halfD);
+
+                    // normal of y = h(x, z): (-dh/dx, 1, -dh/dz)
+                    double dhdx = (xr == xl) ? 0 : (H.get(xr, z) - H.get(xl, z)) / ((xr - xl) * ts.spacing);
+                    double dhdz = (zr == zl) ? 0 : (H.get(x, zr) - H.get(x, zl)) / ((zr - zl) * ts.spacing);
+                    double inv = 1.0 / Math.sqrt(dhdx * dhdx + 1.0 + dhdz * dhdz);
+                    normals[v]     = (float) (-dhdx * inv);
+                    normals[v + 1] = (float) inv;
+                    normals[v + 2] = (float) (-dhdz * inv);
+                }
+            }
+        });
+
+        int[] indices = new int[Math.max(0, (cols - 1) * (rows - 1)) * 6];
+        Heightmap.forEachBand(pool, rows - 1, (r0, r1) -> {
+            for (int r = r0; r < r1; r++) {
+                for (int c = 0; c < cols - 1; c++) {
+                    int v00 = r * cols + c;
+                    int v10 = v00 + 1;
+                    int v01 = v00 + cols;
+                    int v11 = v01 + 1;
+                    int i = 6 * (r * (cols - 1) + c);
+                    indices[i]     = v00; indices[i + 1] = v01; indices[i + 2] = v10;
+                    indices[i + 3] = v10; indices[i + 4] = v01; indices[i + 5] = v11;
+                }
+            }
+        });
 
-        WormSettings wireSettings = new WormSettings();
-        wireSettings.useRandomSegmentSizes = true;
-        wireSettings.fixedSegmentSize = 1.0;
-        wireSettings.minSegmentSize = ts.strokeMin;
-        wireSettings.maxSegmentSize = ts.strokeMax;
+        return new TerrainMesh(vertices, normals, indices, cols, rows, minH, maxH);
+    }
 
-        List<PathGenerator> paths = new ArrayList<>();
+    private static volatile HeightmapCache heightmapCache;
 
-        if (ts.drawRows) {
-            for (int z = 0; z < gz; z += step) {
-                List<Vector3> row = new ArrayList<>((gx + step - 1) / step);
+    /** Serve/store smoothed heightmaps through cache (null disables caching). */
+    public static void setHeightmapCache(HeightmapCache cache) {
+        heightmapCache = cache;
+    }
 
-                for (int x = 0; x < gx; x += step) {
-                    double wx = x * ts.spacing - halfW;   // x exists here
-                    double wz = z * ts.spacing - halfD;   // z exists here
-                    double wy = H[z][x];
-                    row.add(new Vector3(wx, wy, wz));
-                }
+    static Heightmap buildHeightmap(TerrainSettings ts, ForkJoinPool pool) {
+        HeightmapCache cache = heightmapCache;
+        if (cache != null) {
+            Heightmap cached = cache.get(ts);
+            if (cached != null) return cached;
+        }
 
-                if (row.size() >= 2) {
-                    TerrainPolylineGenerator g = new TerrainPolylineGenerator(wireSettings);
-                    g.setPoints(row, minH, maxH);
-                    paths.add(g);
-                }
+        Heightmap H = computeHeightmap(ts, pool);
+
+        if (cache != null) {
+            try {
+                cache.put(ts, H);
+            } catch (IOException e) {
+                // caching is best effort; the heightmap itself is fine
             }
         }
+        return H;
+    }
 
-        if (ts.drawCols) {
-            for (int x = 0; x < gx; x += step) {
-                List<Vector3> col = new ArrayList<>((gz + step - 1) / step);
+    private static Heightmap computeHeightmap(TerrainSettings ts, ForkJoinPool pool) {
+        PerlinNoise pn = new PerlinNoise(ts.seed);
 
-                for (int z = 0; z < gz; z += step) {
-                    double wx = x * ts.spacing - halfW;
-                    double wz = z * ts.spacing - halfD;
-                    double wy = H[z][x];
-                    col.add(new Vector3(wx, wy, wz));
-                }
+        int gx = Math.max(2, ts.gridX);
+        int gz = Math.max(2, ts.gridZ);
 
-                if (col.size() >= 2) {
-                    TerrainPolylineGenerator g = new TerrainPolylineGenerator(wireSettings);
-                    g.setPoints(col, minH, maxH);
-                    paths.add(g);
-                }
+        Heightmap H = new Heightmap(gx, gz);
+
+        // 1) Compute FULL heightmap, one batch fbm fill per band (rows are contiguous,
+        //    so the band's slice of H is filled in place and then shaped)
+        Heightmap.forEachBand(pool, gz, (z0, z1) -> {
+            double[] N = new double[(z1 - z0) * gx];
+            pn.fillFbmRegion(N, 0, 0, ts.noiseScale, ts.noiseScale, 0, gx, z0, z1, ts.octaves, ts.persistence, ts.lacunarity);
+
+            for (int i = 0; i < N.length; i++) {
+                H.data[z0 * gx + i] = shapeHeight(ts, N[i]);
             }
+        });
+
+        // 2) Smooth full heightmap (smooth surface)
+        H.smooth(SMOOTH_ITERATIONS, pool);
+        if (ts.floatPrecision) roundToFloat(H.data);
+        return H;
+    }
+
+    /** Float mode keeps float-representable heights, so fresh, cached and exported maps agree. */
+    private static void roundToFloat(double[] h) {
+        for (int i = 0; i < h.length; i++) h[i] = (float) h[i];
+    }
+
+    /** Turns raw fbm (~[-1,1]) into a terrain height. */
+    private static double shapeHeight(TerrainSettings ts, double n) {
+        double shaped;
+        if (ts.ridgedMountains) {
+            double ridge = 1.0 - Math.abs(n);
+            ridge = clamp01(ridge);
+            shaped = Math.pow(ridge, ts.sharpness);
+        } else {
+            double h01 = (n + 1.0) * 0.5;
+            h01 = clamp01(h01);
+            shaped = Math.pow(h01, ts.sharpness);
         }
 
-        return paths;
+        double h = shaped * ts.amplitude;
+        if (ts.valleys) h = -h;
+        return h;
     }
 
-    private static void smoothHeightmap(double[][] H, int iterations) {
-        int gz = H.length;
-        int gx = H[0].length;
-        double[][] tmp = new double[gz][gx];
+    // ===== Chunked generation =====
+
+    /**
+     * One size x size cell tile of the unbounded heightmap (gridX/gridZ are ignored).
+     * Heights are a pure function of the global lattice index, and smoothing reads a
+     * halo of real neighbours instead of clamping at the tile border, so adjacent
+     * chunks agree exactly on their shared edge samples. Chunks can be generated in
+     * any order, independently of each other. The lattice is int-indexed, so a chunk
+     * whose samples (plus halo) leave the int range throws IllegalArgumentException
+     * instead of wrapping onto terrain from elsewhere.
+     */
+    public static HeightChunk generateChunk(TerrainSettings ts, int chunkX, int chunkZ, int size) {
+        size = Math.max(1, size);
+        PerlinNoise pn = new PerlinNoise(ts.seed);
 
-        for (int it = 0; it < iterations; it++) {
-            for (int z = 0; z < gz; z++) {
-                for (int x = 0; x < gx; x++) {
-                    double sum = 0.0;
-                    int count = 0;
+        int n = size + 1;                  // samples per side (edges shared with neighbours)
+        int halo = SMOOTH_ITERATIONS;      // each 3x3 pass eats one ring
+        int m = n + 2 * halo;
+        int x0 = chunkOrigin("chunkX", chunkX, size, halo, m);
+        int z0 = chunkOrigin("chunkZ", chunkZ, size, halo, m);
 
-                    for (int dz = -1; dz <= 1; dz++) {
-                        int zz = z + dz;
-                        if (zz < 0 || zz >= gz) continue;
+        // 1) Raw heights over chunk + halo
+        double[] N = new double[m * m];
+        pn.fillFbmRegion(N, 0, 0, ts.noiseScale, ts.noiseScale, x0, x0 + m, z0, z0 + m, ts.octaves, ts.persistence, ts.lacunarity);
 
-                        for (int dx = -1; dx <= 1; dx++) {
-                            int xx = x + dx;
-                            if (xx < 0 || xx >= gx) continue;
+        for (int i = 0; i < N.length; i++) N[i] = shapeHeight(ts, N[i]);
+        Heightmap H = new Heightmap(m, m, N);
 
-                            sum += H[zz][xx];
-                            count++;
-                        }
-                    }
+        // 2) Smooth. The outer ring is averaged as a map border, and each pass carries
+        //    that one ring further in, so after halo passes only the halo is off.
+        H.smooth(halo, null);
 
-                    tmp[z][x] = sum / Math.max(1, count);
-                }
+        double[][] heights = H.rows(halo, halo, n, n);
+        if (ts.floatPrecision) {
+            for (double[] row : heights) roundToFloat(row);
+        }
+        return new HeightChunk(chunkX, chunkZ, size, ts.spacing, heights);
+    }
+
+    /** First lattice index of a chunk's halo, checked so that [origin, origin + m] fits in an int. */
+    private static int chunkOrigin(String axis, int chunk, int size, int halo, int m) {
+        long origin = (long) chunk * size - halo;
+        if (origin < Integer.MIN_VALUE || origin + m > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(axis + " " + chunk + " is outside the terrain lattice for size " + size);
+        }
+        return (int) origin;
+    }
+
+    /**
+     * Lazily generates the chunks of [cx0, cx1) x [cz0, cz1) in row-major order.
+     * Only the chunk being returned is held, so the covered world can be larger
+     * than the heap.
+     */
+    public static Iterator<HeightChunk> chunkIterator(TerrainSettings ts, int size, int cx0, int cz0, int cx1, int cz1) {
+        return new Iterator<>() {
+            private int cx = cx0, cz = cz0;
+
+            @Override
+            public boolean hasNext() {
+                return cx < cx1 && cz < cz1;
             }
 
-            for (int z = 0; z < gz; z++) {
-                System.arraycopy(tmp[z], 0, H[z], 0, gx);
+            @Override
+            public HeightChunk next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                HeightChunk c = generateChunk(ts, cx, cz, size);
+                if (++cx >= cx1) {
+                    cx = cx0;
+                    cz++;
+                }
+                return c;
             }
-        }
+        };
     }
 
     private static double clamp01(double v) {
@@ -0,0 +1,187 @@
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Growable {@link PolylineBuffer}: one float xyz array for all points plus
+ * offset and per-segment tables. Roughly 20 bytes per point, against ~100 for
+ * Vector3 + boxed Double + Color in the List based generators.
+ */
+public final class PolylineBatch implements PolylineBuffer {
+    private float[] xyz;
+    private float[] segSizes;
+    private int[] segColors;
+    private int[] starts;          // starts[i] = first point of polyline i, starts[count] = pointCount
+    private WormSettings[] settings;
+
+    private int points;
+    private int segments;
+    private int polylines;
+
+    public PolylineBatch() {
+        this(64, 4);
+    }
+
+    public PolylineBatch(int expectedPoints, int expectedPolylines) {
+        expectedPoints = Math.max(2, expectedPoints);
+        expectedPolylines = Math.max(1, expectedPolylines);
+        xyz = new float[expectedPoints * 3];
+        segSizes = new float[expectedPoints];
+        segColors = new int[expectedPoints];
+        starts = new int[expectedPolylines + 1];
+        settings = new WormSettings[expectedPolylines];
+    }
+
+    /** Wraps already packed arrays (starts has polylineCount + 1 entries); all polylines share settings. */
+    PolylineBatch(float[] xyz, int[] starts, float[] segSizes, int[] segColors, WormSettings settings) {
+        this.xyz = xyz;
+        this.starts = starts;
+        this.segSizes = segSizes;
+        this.segColors = segColors;
+        this.polylines = starts.length - 1;
+        this.points = starts[polylines];
+        this.segments = points - polylines;
+        this.settings = new WormSettings[Math.max(1, polylines)];
+        Arrays.fill(this.settings, settings);
+    }
+
+    // ===== Building =====
+
+    public void startPolyline(WormSettings s) {
+        if (polylines + 1 >= starts.length) starts = Arrays.copyOf(starts, starts.length * 2);
+        // settings is one shorter than starts, or just 1 long from trim() or the wrapping constructor
+        if (polylines >= settings.length) settings = Arrays.copyOf(settings, starts.length - 1);
+        settings[polylines] = s;
+        starts[polylines] = points;
+        starts[polylines + 1] = points;
+    }
+
+    /** First point of the current polyline. */
+    public void addPoint(double x, double y, double z) {
+        ensurePoints(points + 1);
+        int i = points * 3;
+        xyz[i] = (float) x;
+        xyz[i + 1] = (float) y;
+        xyz[i + 2] = (float) z;
+        points++;
+    }
+
+    /** Next point, carrying the size and colour of the segment that ends at it. */
+    public void addPoint(double x, double y, double z, double segmentSize, int argb) {
+        addPoint(x, y, z);
+        segSizes[segments] = (float) segmentSize;
+        segColors[segments] = argb;
+        segments++;
+    }
+
+    /** Closes the current polyline; one with fewer than 2 points is dropped. */
+    public void endPolyline() {
+        int start = starts[polylines];
+        if (points - start < 2) {
+            points = start;   // 0 or 1 point: no segments were recorded
+            return;
+        }
+        polylines++;
+        starts[polylines] = points;
+    }
+
+    /** Releases unused capacity once building is done. */
+    public void trim() {
+        xyz = Arrays.copyOf(xyz, points * 3);
+        segSizes = Arrays.copyOf(segSizes, segments);
+        segColors = Arrays.copyOf(segColors, segments);
+        starts = Arrays.copyOf(starts, polylines + 1);
+        settings = Arrays.copyOf(settings, Math.max(1, polylines));
+    }
+
+    /** Joins parts in order into one trimmed batch. */
+    public static PolylineBatch concat(PolylineBatch[] parts) {
+        int points = 0, polylines = 0;
+        for (PolylineBatch p : parts) {
+            points += p.points;
+            polylines += p.polylines;
+        }
+        PolylineBatch b = new PolylineBatch(points, polylines);
+        for (PolylineBatch p : parts) {
+            System.arraycopy(p.xyz, 0, b.xyz, b.points * 3, p.points * 3);
+            System.arraycopy(p.segSizes, 0, b.segSizes, b.segments, p.segments);
+            System.arraycopy(p.segColors, 0, b.segColors, b.segments, p.segments);
+            System.arraycopy(p.settings, 0, b.settings, b.polylines, p.polylines);
+            for (int i = 1; i <= p.polylines; i++) {
+                b.starts[b.polylines + i] = b.points + p.starts[i];
+            }
+            b.points += p.points;
+            b.segments += p.segments;
+            b.polylines += p.polylines;
+        }
+        b.trim();
+        return b;
+    }
+
+    private void ensurePoints(int n) {
+        if (n * 3 > xyz.length) {
+            int cap = Math.max(n, xyz.length / 3 * 2);
+            xyz = Arrays.copyOf(xyz, cap * 3);
+            segSizes = Arrays.copyOf(segSizes, cap);
+            segColors = Arrays.copyOf(segColors, cap);
+        }
+    }
+
+    // ===== PolylineBuffer =====
+
+    @Override public int polylineCount() { return polylines; }
+    @Override public int pointCount() { return points; }
+    @Override public int pointStart(int polyline) { return starts[polyline]; }
+    @Override public int pointEnd(int polyline) { return starts[polyline + 1]; }
+    @Override public float[] coords() { return xyz; }
+    @Override public float segmentSize(int segment) { return segSizes[segment]; }
+    @Override public int segmentColor(int segment) { return segColors[segment]; }
+    @Override public WormSettings getSettings(int polyline) { return settings[polyline]; }
+
+    // ===== Adapters for the List based API =====
+
+    /**
+     * Packs generators into one batch. Segment colours come from a
+     * {@link SegmentColorProvider} when the generator is one, else from colors
+     * (one per generator, CYAN when missing).
+     */
+    public static PolylineBatch fromGenerators(List<? extends PathGenerator> generators, List<Color> colors) {
+        int total = 0;
+        for (PathGenerator g : generators) total += g.getPoints().size();
+
+        PolylineBatch b = new PolylineBatch(total, generators.size());
+        for (int gi = 0; gi < generators.size(); gi++) {
+            PathGenerator gen = generators.get(gi);
+            List<Vector3> pts = gen.getPoints();
+            List<Double> sizes = gen.getSegmentSizes();
+            WormSettings s = gen.getSettings();
+            int col = ((colors != null && gi < colors.size()) ? colors.get(gi) : Color.CYAN).getRGB();
+            SegmentColorProvider scp = (gen instanceof SegmentColorProvider p) ? p : null;
+
+            b.startPolyline(s);
+            for (int i = 0; i < pts.size(); i++) {
+                Vector3 v = pts.get(i);
+                if (i == 0) {
+                    b.addPoint(v.x, v.y, v.z);
+                    continue;
+                }
+                double size = (i - 1 < sizes.size()) ? sizes.get(i - 1) : s.fixedSegmentSize;
+                int argb = (scp != null) ? scp.getSegmentColor(i - 1).getRGB() : col;
+                b.addPoint(v.x, v.y, v.z, size, argb);
+            }
+            b.endPolyline();
+        }
+        b.trim();
+        return b;
+    }
+
+    /** One {@link PackedPolyline} view per polyline, for callers of the List API. */
+    public static List<PathGenerator> toPathGenerators(PolylineBuffer buffer) {
+        List<PathGenerator> out = new ArrayList<>(buffer.polylineCount());
+        for (int i = 0; i < buffer.polylineCount(); i++) {
+            out.add(new PackedPolyline(buffer, i));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,24 @@
+/**
+ * Many polylines packed into primitive arrays (the allocation-free counterpart
+ * of a list of {@link PathGenerator}s).
+ *
+ * Polyline i owns points [pointStart(i), pointEnd(i)). Its segment k (point
+ * k -> k+1) has the global segment index pointStart(i) - i + k.
+ */
+public interface PolylineBuffer {
+    int polylineCount();
+    int pointCount();
+
+    int pointStart(int polyline);
+    int pointEnd(int polyline);
+
+    /** x,y,z of point p live at [3p, 3p+2]. Do not modify. */
+    float[] coords();
+
+    float segmentSize(int segment);
+
+    /** Packed ARGB, as in {@link java.awt.Color#getRGB()}. */
+    int segmentColor(int segment);
+
+    WormSettings getSettings(int polyline);
+}
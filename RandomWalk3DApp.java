@@ -1,28 +1,32 @@
 import javax.swing.*;
 import java.awt.Color;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
 
 public class RandomWalk3DApp {
 
-    private static final Random RAND = new Random();
+    // Colours draw from their own stream so picking them never shifts the worms
+    private static final long COLOR_SALT = 0x9E3779B97F4A7C15L;
 
-    private static Color randomNeonColor() {
-        float hue = RAND.nextFloat();
+    private static Color randomNeonColor(SplittableRandom rand) {
+        float hue = rand.nextFloat();
         return Color.getHSBColor(hue, 1.0f, 1.0f);
     }
 
-    private static double randRange(double min, double max) {
-        return min + RAND.nextDouble() * (max - min);
-    }
+    private static final long HEIGHTMAP_CACHE_BYTES = 1L << 30;
 
-    private static Vector3 randomPointInCube(double min, double max) {
-        return new Vector3(
-                randRange(min, max),
-                randRange(min, max),
-                randRange(min, max)
-        );
+    private static void enableHeightmapCache() {
+        Path dir = Paths.get(System.getProperty("user.home"), ".cache", "3d-terrain-generator");
+        try {
+            PerlinTerrainGenerator.setHeightmapCache(new HeightmapCache(dir, HEIGHTMAP_CACHE_BYTES));
+        } catch (IOException e) {
+            System.err.println("Heightmap cache disabled: " + e.getMessage());
+        }
     }
 
     public static void main(String[] args) {
@@ -40,17 +44,16 @@ public class RandomWalk3DApp {
 
             if (result != JOptionPane.OK_OPTION) return;
 
-            // Create lists FIRST (so terrain/worm both can fill them)
-            List<PathGenerator> generators = new ArrayList<>();
-            List<Color> colors = new ArrayList<>();
+            List<PolylineBuffer> buffers = new ArrayList<>();
+            List<TerrainMesh> meshes = new ArrayList<>();
 
             if (panel.isTerrainMode()) {
                 // ===== TERRAIN MODE =====
                 TerrainSettings ts = panel.buildTerrainSettings();
+                enableHeightmapCache();
                 
                 double detail = panel.getTerrainDetail(); // e.g. 0.2 .. 1.0
-                generators.addAll(PerlinTerrainGenerator.generateWireframeDetail(ts, detail));
-                for (int i = 0; i < generators.size(); i++) colors.add(Color.WHITE);
+                buffers.add(PerlinTerrainGenerator.generateWireframeDetailBatch(ts, detail, ForkJoinPool.commonPool()));
 
 //
 //                generators.addAll(PerlinTerrainGenerator.generateWireframe(ts));
@@ -60,8 +63,11 @@ public class RandomWalk3DApp {
 //                for (int i = 0; i < generators.size(); i++) {
 //                    colors.add(terrainColor);
 //                }
-            	generators.addAll(PerlinTerrainGenerator.generateWireframe(ts, 2));
-            	for (int i = 0; i < generators.size(); i++) colors.add(Color.WHITE);
+            	buffers.add(PerlinTerrainGenerator.generateWireframeBatch(ts, 2, ForkJoinPool.commonPool()));
+
+                if (panel.isSolidTerrain()) {
+                    meshes.add(PerlinTerrainGenerator.generateMesh(ts, 1, ForkJoinPool.commonPool()));
+                }
 
 
             } else {
@@ -74,22 +80,13 @@ public class RandomWalk3DApp {
                 boolean randomEndpoints = panel.isRandomEndpoints();
 
                 WormSettings template = panel.buildSettingsTemplate();
+                SplittableRandom colorRand = new SplittableRandom(template.seed ^ COLOR_SALT);
+                int[] colors = new int[numWorms];
 
                 for (int i = 0; i < numWorms; i++) {
-                    WormSettings s = template.copy();
-
-                    if (randomEndpoints) {
-                        s.startPoint = randomPointInCube(-30, 30);
-                        s.endPoint   = randomPointInCube(-30, 30);
-                    }
-
-                    RandomWormGenerator gen = new RandomWormGenerator(s);
-                    gen.generate();
-                    generators.add(gen);
-
                     Color col;
                     if (chooseColorsManually) {
-                        Color initial = randomNeonColor();
+                        Color initial = randomNeonColor(colorRand);
                         col = JColorChooser.showDialog(
                                 null,
                                 "Choose color for worm #" + (i + 1),
@@ -97,17 +94,19 @@ public class RandomWalk3DApp {
                         );
                         if (col == null) col = initial;
                     } else {
-                        col = randomNeonColor();
+                        col = randomNeonColor(colorRand);
                     }
-                    colors.add(col);
+                    colors[i] = col.getRGB();
                 }
+
+                buffers.add(RandomWormGenerator.generateBatch(template, numWorms, randomEndpoints, colors, ForkJoinPool.commonPool()));
             }
 
             // ===== Create window =====
             JFrame frame = new JFrame(panel.isTerrainMode() ? "3D Terrain Viewer" : "3D Random Worm Viewer");
             frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
-            RandomWalk3DViewer viewer = new RandomWalk3DViewer(generators, colors);
+            RandomWalk3DViewer viewer = new RandomWalk3DViewer(buffers, meshes.toArray(new TerrainMesh[0]));
             frame.add(viewer);
 
             frame.setSize(900, 700);
@@ -1,15 +1,18 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
 import java.util.List;
-import java.awt.geom.Point2D;
+import java.util.concurrent.ForkJoinPool;
 
 
 public class RandomWalk3DViewer extends JPanel
         implements MouseListener, MouseMotionListener, MouseWheelListener {
 
-	private final List<PathGenerator> generators;
-    private final List<Color> colors;
+	private final List<PolylineBuffer> buffers;
+	private final List<TerrainMesh> meshes;   // drawn solid under the polylines
 
     // Camera rotation
     private double camYaw = 0.0;
@@ -38,226 +41,446 @@ public class RandomWalk3DViewer extends JPanel
     private Vector3 camPos = new Vector3(0, 0, 200);
     private double orbitRadius = 200.0;
 
+    // Frames are drawn off the EDT into backFrame and swapped into frontFrame when done.
+    // Requests made while a frame renders collapse into pendingView; the older ones are never drawn.
+    private static final int BACKGROUND_RGB = 0x000000;
+    private final Object frameLock = new Object();
+    private View pendingView;
+    private Frame frontFrame;
+    private Frame backFrame;
+    private Thread renderThread;
+
+    // Points per projection task
+    private static final int PROJECT_BLOCK = 4096;
+
+    /** Camera state for one frame, copied on the EDT so the render thread never reads live fields. */
+    private static final class View implements TriangleRasterizer.Projection {
+        static final double FOCAL = 200.0;
+        static final int CLIPPED = Integer.MIN_VALUE;   // sx of a point behind the camera
+
+        final int width, height;
+        final double camX, camY, camZ;
+        final double[] m = new double[9];   // rows: right, up, forward
+        final double centerX, centerY, zoom;
+
+        View(RandomWalk3DViewer v) {
+            width = v.getWidth();
+            height = v.getHeight();
+            camX = v.camPos.x;
+            camY = v.camPos.y;
+            camZ = v.camPos.z;
+            Vector3 forward = v.pivot.subtract(v.camPos).normalize();
+            Vector3 right = forward.cross(new Vector3(0, 1, 0)).normalize();
+            Vector3 up = right.cross(forward);
+            m[0] = right.x;   m[1] = right.y;   m[2] = right.z;
+            m[3] = up.x;      m[4] = up.y;      m[5] = up.z;
+            m[6] = forward.x; m[7] = forward.y; m[8] = forward.z;
+            centerX = width / 2.0 + v.panX;
+            centerY = height / 2.0 + v.panY;
+            zoom = v.zoom;
+        }
 
+        /** Projects points [from, to) of xyz into the same slots of sx, sy and depth. */
+        void project(float[] xyz, int from, int to, int[] sx, int[] sy, float[] depth) {
+            for (int i = from; i < to; i++) {
+                project(xyz[3 * i], xyz[3 * i + 1], xyz[3 * i + 2], sx, sy, depth, i);
+            }
+        }
 
-    public RandomWalk3DViewer(List<PathGenerator> generators, List<Color> colors) {
-        this.generators = generators;
-        this.colors = colors;
+        /** Projects one point into slot i; sx[i] is CLIPPED when it is behind the camera. */
+        void project(double x, double y, double z, int[] sx, int[] sy, float[] depth, int i) {
+            double rx = x - camX, ry = y - camY, rz = z - camZ;
 
-        setBackground(Color.BLACK);
-        addMouseListener(this);
-        addMouseMotionListener(this);
-        addMouseWheelListener(this);
-    }
-    
-    private Point2D.Double projectToScreenD(Vector3 v, int width, int height) {
-        // Same projection as projectToScreen, but keep doubles.
-        Vector3 forward = pivot.subtract(camPos).normalize();
-        Vector3 upWorld = new Vector3(0, 1, 0);
+            double xCam = rx * m[0] + ry * m[1] + rz * m[2];
+            double yCam = rx * m[3] + ry * m[4] + rz * m[5];
+            double zCam = rx * m[6] + ry * m[7] + rz * m[8];
 
-        Vector3 right = forward.cross(upWorld).normalize();
-        Vector3 up = right.cross(forward);
+            double denom = FOCAL + zCam;
+            if (denom <= 0.1) {
+                sx[i] = CLIPPED;
+                return;
+            }
 
-        Vector3 rel = v.subtract(camPos);
+            double factor = FOCAL / denom;
+            sx[i] = (int) Math.round(centerX + xCam * factor * zoom);
+            sy[i] = (int) Math.round(centerY - yCam * factor * zoom);
+            depth[i] = (float) zCam;
+        }
 
-        double xCam = rel.dot(right);
-        double yCam = rel.dot(up);
-        double zCam = rel.dot(forward);
+        /** Sub-pixel projection for the mesh rasterizer; invZ is 1 / (FOCAL + zCam). */
+        @Override
+        public void project(float[] xyz, int from, int to, float[] sx, float[] sy, float[] invZ) {
+            for (int i = from; i < to; i++) {
+                double rx = xyz[3 * i] - camX, ry = xyz[3 * i + 1] - camY, rz = xyz[3 * i + 2] - camZ;
 
-        double focal = 200.0;
-        double denom = focal + zCam;
-        if (denom <= 0.1) return null;
+                double xCam = rx * m[0] + ry * m[1] + rz * m[2];
+                double yCam = rx * m[3] + ry * m[4] + rz * m[5];
+                double zCam = rx * m[6] + ry * m[7] + rz * m[8];
 
-        double factor = focal / denom;
+                double denom = FOCAL + zCam;
+                if (denom <= 0.1) {
+                    invZ[i] = 0;
+                    continue;
+                }
 
-        double centerX = width / 2.0 + panX;
-        double centerY = height / 2.0 + panY;
+                double factor = FOCAL / denom;
+                sx[i] = (float) (centerX + xCam * factor * zoom);
+                sy[i] = (float) (centerY - yCam * factor * zoom);
+                invZ[i] = (float) (1.0 / denom);
+            }
+        }
+    }
 
-        double screenX = centerX + xCam * factor * zoom;
-        double screenY = centerY - yCam * factor * zoom;
+    /** Screen-space positions of one buffer's points, for the view the frame was drawn with. */
+    private static final class ScreenPoints {
+        int[] sx = new int[0], sy = new int[0];
+        float[] depth = new float[0];
 
-        return new Point2D.Double(screenX, screenY);
+        void ensure(int n) {
+            if (sx.length < n) {
+                sx = new int[n];
+                sy = new int[n];
+                depth = new float[n];
+            }
+        }
     }
 
+    /**
+     * Visible segments grouped by (stroke width in half pixels, exact ARGB colour),
+     * so each group is drawn under one setStroke/setColor. Segments collect until
+     * FLUSH_SEGMENTS, which keeps overdraw close to scene order, then are drawn
+     * group by group in first-use order. The key table only ever holds one flush's
+     * keys, so it stays small however many colours a scene uses. Strokes and
+     * colours are cached across frames. Only the render thread uses it.
+     */
+    private static final class SegmentBuckets {
+        static final int FLUSH_SEGMENTS = 4096;
+        private static final int WIDTH_STEPS = 16;   // widths 0 .. 7.5 px in 0.5 px steps
+        private static final int TABLE_BITS = 13;    // 2 * FLUSH_SEGMENTS slots: at most half full
+        private static final long EMPTY = -1;        // never a key, the width sits below bit 36
+        private static final int COLOR_CACHE = 1024;
+
+        // open-addressed key -> group table, reset slot by slot after each flush
+        private final long[] slotKeys = new long[1 << TABLE_BITS];
+        private final int[] slotGroups = new int[1 << TABLE_BITS];
+
+        // groups of the current flush, in first-use order
+        private final long[] groupKeys = new long[FLUSH_SEGMENTS];
+        private final int[] groupSlots = new int[FLUSH_SEGMENTS];
+        private final int[] groupStarts = new int[FLUSH_SEGMENTS + 1];
+        private int groups;
+
+        // segments of the current flush, in scene order
+        private final int[] segGroups = new int[FLUSH_SEGMENTS];
+        private final int[] segCoords = new int[FLUSH_SEGMENTS * 4];   // x0, y0, x1, y1 per segment
+        private final int[] order = new int[FLUSH_SEGMENTS];
+        int pending;
+
+        private final BasicStroke[] roundStrokes = new BasicStroke[WIDTH_STEPS];
+        private final BasicStroke[] squareStrokes = new BasicStroke[WIDTH_STEPS];
+        private final Color[] colorCache = new Color[COLOR_CACHE];
+
+        // Square caps let Java2D fill each wide line as a parallelogram, several
+        // times faster than stroking round caps; heavy scenes use them
+        boolean squareCaps;
+
+        SegmentBuckets() {
+            Arrays.fill(slotKeys, EMPTY);
+        }
 
-    @Override
-    protected void paintComponent(Graphics g) {
-    	
-        super.paintComponent(g);
-
-        if (generators == null || generators.isEmpty()) return;
+        static long key(float width, int argb) {
+            long w = Math.min(WIDTH_STEPS - 1, Math.round(width * 2));
+            return (w << 32) | (argb & 0xFFFFFFFFL);
+        }
 
-        Graphics2D g2 = (Graphics2D) g;
-        g2.setRenderingHint(
-                RenderingHints.KEY_ANTIALIASING,
-                RenderingHints.VALUE_ANTIALIAS_ON
-        );
+        void add(long key, int x0, int y0, int x1, int y1) {
+            int n = pending;
+            segGroups[n] = group(key);
+            segCoords[4 * n] = x0;
+            segCoords[4 * n + 1] = y0;
+            segCoords[4 * n + 2] = x1;
+            segCoords[4 * n + 3] = y1;
+            pending = n + 1;
+        }
 
-        int w = getWidth();
-        int h = getHeight();
+        private int group(long key) {
+            int mask = slotKeys.length - 1;
+            int i = ((int) (key ^ (key >>> 32)) * 0x9E3779B9) >>> (32 - TABLE_BITS);
+            while (slotKeys[i] != key) {
+                if (slotKeys[i] == EMPTY) {
+                    int g = groups++;
+                    slotKeys[i] = key;
+                    slotGroups[i] = g;
+                    groupKeys[g] = key;
+                    groupSlots[g] = i;
+                    groupStarts[g] = 0;
+                    return g;
+                }
+                i = (i + 1) & mask;
+            }
+            return slotGroups[i];
+        }
 
-        boolean heavy = generators.size() > 150; // terrain often 200+ polylines
-        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
-                heavy ? RenderingHints.VALUE_ANTIALIAS_OFF : RenderingHints.VALUE_ANTIALIAS_ON);
+        /** Draws the pending segments group by group, then empties the buckets. */
+        void drawAndReset(Graphics2D g2) {
+            // counting sort of segment indices by group, keeping scene order within a group
+            for (int k = 0; k < pending; k++) groupStarts[segGroups[k]]++;
+            int start = 0;
+            for (int g = 0; g < groups; g++) {
+                int c = groupStarts[g];
+                groupStarts[g] = start;
+                start += c;
+            }
+            groupStarts[groups] = start;
+            for (int k = 0; k < pending; k++) order[groupStarts[segGroups[k]]++] = k;
+
+            int lastWidth = -1;
+            for (int g = 0, from = 0; g < groups; g++) {
+                long key = groupKeys[g];
+                int w = (int) (key >>> 32);
+                if (w != lastWidth) {
+                    g2.setStroke(stroke(w));
+                    lastWidth = w;
+                }
+                g2.setColor(color((int) key));
+                for (int to = groupStarts[g]; from < to; from++) {
+                    int c = 4 * order[from];
+                    g2.drawLine(segCoords[c], segCoords[c + 1], segCoords[c + 2], segCoords[c + 3]);
+                }
+                slotKeys[groupSlots[g]] = EMPTY;
+            }
+            groups = 0;
+            pending = 0;
+        }
 
-        Vector3 forward = pivot.subtract(camPos).normalize();
-        Vector3 upWorld = new Vector3(0, 1, 0);
-        Vector3 right = forward.cross(upWorld).normalize();
-        Vector3 up = right.cross(forward);
+        private BasicStroke stroke(int w) {
+            BasicStroke[] strokes = squareCaps ? squareStrokes : roundStrokes;
+            if (strokes[w] == null) {
+                int cap = squareCaps ? BasicStroke.CAP_SQUARE : BasicStroke.CAP_ROUND;
+                strokes[w] = new BasicStroke(w * 0.5f, cap, BasicStroke.JOIN_ROUND);
+            }
+            return strokes[w];
+        }
 
-        
-        drawAxis(g2, w, h);
+        private Color color(int argb) {
+            int i = ((argb * 0x9E3779B9) >>> 22) & (COLOR_CACHE - 1);
+            Color c = colorCache[i];
+            if (c == null || c.getRGB() != argb) c = colorCache[i] = new Color(argb, true);
+            return c;
+        }
+    }
 
-        // Draw each worm with its own color
-        for (int wIndex = 0; wIndex < generators.size(); wIndex++) {
-        	PathGenerator gen = generators.get(wIndex);
-            List<Vector3> points = gen.getPoints();
-            List<Double> sizes   = gen.getSegmentSizes();
-            WormSettings settings = gen.getSettings();
+    private final SegmentBuckets buckets = new SegmentBuckets();
+    private final TriangleRasterizer rasterizer = new TriangleRasterizer();
 
-            if (points == null || points.size() < 2) continue;
+    /** One completed (front) or in-progress (back) frame. */
+    private static final class Frame {
+        BufferedImage image;
+        View view;
+        ScreenPoints[] points;
+    }
 
-            Color col = (wIndex < colors.size()) ? colors.get(wIndex) : Color.CYAN;
 
-            for (int i = 1; i < points.size(); i++) {
-                Vector3 vPrev = points.get(i - 1);
-                Vector3 vCur  = points.get(i);
+    public RandomWalk3DViewer(List<PathGenerator> generators, List<Color> colors) {
+        this(List.of(PolylineBatch.fromGenerators(generators, colors)));
+    }
 
-               //	Point pPrev = projectToScreen(vPrev, w, h);
-               // Point pCur  = projectToScreen(vCur,  w, h);
-                Point pPrev = projectToScreenFast(vPrev, w, h, right, up, forward);
-                Point pCur = projectToScreenFast(vPrev, w, h, right, up, forward);
+    public RandomWalk3DViewer(List<PolylineBuffer> buffers, TerrainMesh... meshes) {
+        this.buffers = (buffers != null) ? buffers : List.of();
+        this.meshes = List.of(meshes);
 
+        setBackground(Color.BLACK);
+        addMouseListener(this);
+        addMouseMotionListener(this);
+        addMouseWheelListener(this);
+        addComponentListener(new ComponentAdapter() {
+            @Override public void componentResized(ComponentEvent e) { requestFrame(); }
+        });
+    }
 
-                if (pPrev == null || pCur == null) continue;
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        renderThread = new Thread(this::renderLoop, "viewer-render");
+        renderThread.setDaemon(true);
+        renderThread.start();
+        requestFrame();
+    }
 
-                double segSize = (i - 1 < sizes.size())
-                        ? sizes.get(i - 1)
-                        : settings.fixedSegmentSize;
+    @Override
+    public void removeNotify() {
+        renderThread.interrupt();
+        super.removeNotify();
+    }
 
-                float thickness = computeStrokeWidth(segSize, settings);
+    /** Asks the render thread for a frame of the current camera; call on the EDT instead of repaint(). */
+    private void requestFrame() {
+        View v = new View(this);
+        if (v.width <= 0 || v.height <= 0) return;
+        synchronized (frameLock) {
+            pendingView = v;
+            frameLock.notifyAll();
+        }
+    }
 
-                g2.setStroke(new BasicStroke(
-                        thickness,
-                        BasicStroke.CAP_ROUND,
-                        BasicStroke.JOIN_ROUND
-                ));
-                //g2.setColor(col);
-                g2.drawLine(pPrev.x, pPrev.y, pCur.x, pCur.y);
-                
-                int segIndex = i - 1;
+    private void renderLoop() {
+        try {
+            while (true) {
+                View v;
+                synchronized (frameLock) {
+                    while (pendingView == null) frameLock.wait();
+                    v = pendingView;
+                    pendingView = null;
+                }
 
-                Color drawCol = col;
-                if (gen instanceof SegmentColorProvider scp) {
-                    drawCol = scp.getSegmentColor(segIndex);
+                // backFrame is only touched here, and is never the frame paintComponent or picking read
+                Frame f = (backFrame != null) ? backFrame : new Frame();
+                if (f.image == null || f.image.getWidth() != v.width || f.image.getHeight() != v.height) {
+                    f.image = new BufferedImage(v.width, v.height, BufferedImage.TYPE_INT_RGB);
                 }
-                g2.setColor(drawCol);
+                f.view = v;
+                renderFrame(f);
 
+                synchronized (frameLock) {
+                    backFrame = frontFrame;
+                    frontFrame = f;
+                }
+                repaint();
             }
+        } catch (InterruptedException e) {
+            // viewer removed from its window
+        }
+    }
+    
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        synchronized (frameLock) {
+            if (frontFrame != null) g.drawImage(frontFrame.image, 0, 0, null);
         }
     }
 
-    private float computeStrokeWidth(double segSize, WormSettings settings) {
-        double minS = settings.minSegmentSize;
-        double maxS = settings.maxSegmentSize;
+    private void renderFrame(Frame f) {
+        int[] pixels = ((DataBufferInt) f.image.getRaster().getDataBuffer()).getData();
+        Arrays.fill(pixels, BACKGROUND_RGB);
+        if (!meshes.isEmpty()) {
+            rasterizer.beginFrame(f.image);
+            for (TerrainMesh mesh : meshes) rasterizer.draw(mesh, f.view, ForkJoinPool.commonPool());
+        }
+        projectAll(f);
 
-        if (maxS <= minS + 1e-6) {
-            return 3.0f;
+        Graphics2D g2 = f.image.createGraphics();
+        try {
+            drawFrame(g2, f);
+        } finally {
+            g2.dispose();
         }
-        double t = (segSize - minS) / (maxS - minS);
-        t = clamp(t, 0.0, 1.0);
-        double width = 1.0 + t * 6.0; // 1 to 7
-        return (float) width;
     }
 
-    private double clamp(double v, double min, double max) {
-        return Math.max(min, Math.min(max, v));
+    /** Projects every point of every buffer once, in blocks spread over the common pool. */
+    private void projectAll(Frame f) {
+        int n = (buffers == null) ? 0 : buffers.size();
+        if (f.points == null || f.points.length != n) {
+            f.points = new ScreenPoints[n];
+            for (int i = 0; i < n; i++) f.points[i] = new ScreenPoints();
+        }
+        View v = f.view;
+        for (int bi = 0; bi < n; bi++) {
+            PolylineBuffer buf = buffers.get(bi);
+            ScreenPoints sp = f.points[bi];
+            int count = buf.pointCount();
+            sp.ensure(count);
+            float[] xyz = buf.coords();
+            int blocks = (count + PROJECT_BLOCK - 1) / PROJECT_BLOCK;
+            Parallel.forRange(ForkJoinPool.commonPool(), blocks, 1, (b0, b1) ->
+                    v.project(xyz, b0 * PROJECT_BLOCK, Math.min(count, b1 * PROJECT_BLOCK), sp.sx, sp.sy, sp.depth));
+        }
     }
-    
-    private Point projectToScreenFast(Vector3 v, int width, int height,
-        Vector3 right, Vector3 up, Vector3 forward) {
-		Vector3 rel = v.subtract(camPos);
-		
-		double xCam = rel.dot(right);
-		double yCam = rel.dot(up);
-		double zCam = rel.dot(forward);
-		
-		double focal = 200.0;
-		double denom = focal + zCam;
-		if (denom <= 0.1) return null;
-		
-		double factor = focal / denom;
-		
-		double centerX = width / 2.0 + panX;
-		double centerY = height / 2.0 + panY;
-		
-		int screenX = (int)Math.round(centerX + xCam * factor * zoom);
-		int screenY = (int)Math.round(centerY - yCam * factor * zoom);
-		return new Point(screenX, screenY);
-}
 
+    private void drawFrame(Graphics2D g2, Frame f) {
+        if (buffers.isEmpty() && meshes.isEmpty()) return;
 
-    private Point projectToScreen(Vector3 v, int width, int height) {
-        // Build camera basis (lookAt pivot)
-        Vector3 forward = pivot.subtract(camPos).normalize(); // camera looks toward pivot
-        Vector3 upWorld = new Vector3(0, 1, 0);
+        int polylines = 0;
+        for (PolylineBuffer b : buffers) polylines += b.polylineCount();
+
+        boolean heavy = polylines > 150; // terrain often 200+ polylines
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                heavy ? RenderingHints.VALUE_ANTIALIAS_OFF : RenderingHints.VALUE_ANTIALIAS_ON);
 
-        Vector3 right = forward.cross(upWorld).normalize();
-        Vector3 up = right.cross(forward);
+        drawAxis(g2, f.view);
 
-        Vector3 rel = v.subtract(camPos);
+        buckets.squareCaps = heavy;
+        boolean depthTest = !meshes.isEmpty();   // hide lines behind the solid surface
 
-        double xCam = rel.dot(right);
-        double yCam = rel.dot(up);
-        double zCam = rel.dot(forward);
+        // Bucket visible segments and draw them bucket by bucket
+        for (int bi = 0; bi < buffers.size(); bi++) {
+            PolylineBuffer buf = buffers.get(bi);
+            int[] sx = f.points[bi].sx, sy = f.points[bi].sy;
+            float[] depth = f.points[bi].depth;
 
-        double focal = 200.0;
-        double denom = focal + zCam;
-        if (denom <= 0.1) return null;
+            for (int line = 0; line < buf.polylineCount(); line++) {
+                int start = buf.pointStart(line);
+                int end = buf.pointEnd(line);
+                WormSettings settings = buf.getSettings(line);
 
-        double factor = focal / denom;
+                for (int p = start + 1; p < end; p++) {
+                    if (sx[p - 1] == View.CLIPPED || sx[p] == View.CLIPPED) continue;
+                    if (depthTest && !segmentVisible(sx, sy, depth, p - 1, p)) continue;
 
-        double centerX = width / 2.0 + panX;
-        double centerY = height / 2.0 + panY;
+                    int segIndex = p - 1 - line;
+                    float thickness = computeStrokeWidth(buf.segmentSize(segIndex), settings);
+                    long key = SegmentBuckets.key(thickness, buf.segmentColor(segIndex));
+                    buckets.add(key, sx[p - 1], sy[p - 1], sx[p], sy[p]);
+                    if (buckets.pending >= SegmentBuckets.FLUSH_SEGMENTS) buckets.drawAndReset(g2);
+                }
+            }
+        }
+        buckets.drawAndReset(g2);
+    }
 
-        int screenX = (int) Math.round(centerX + xCam * factor * zoom);
-        int screenY = (int) Math.round(centerY - yCam * factor * zoom);
-        return new Point(screenX, screenY);
+    /** A segment is drawn if either end or its midpoint passes the mesh depth test. */
+    private boolean segmentVisible(int[] sx, int[] sy, float[] depth, int a, int b) {
+        float za = (float) (1.0 / (View.FOCAL + depth[a]));
+        float zb = (float) (1.0 / (View.FOCAL + depth[b]));
+        return rasterizer.isVisible(sx[a], sy[a], za)
+                || rasterizer.isVisible(sx[b], sy[b], zb)
+                || rasterizer.isVisible((sx[a] + sx[b]) >> 1, (sy[a] + sy[b]) >> 1, (za + zb) * 0.5f);
     }
 
+    private float computeStrokeWidth(double segSize, WormSettings settings) {
+        double minS = settings.minSegmentSize;
+        double maxS = settings.maxSegmentSize;
 
+        if (maxS <= minS + 1e-6) {
+            return 3.0f;
+        }
+        double t = (segSize - minS) / (maxS - minS);
+        t = clamp(t, 0.0, 1.0);
+        double width = 1.0 + t * 6.0; // 1 to 7
+        return (float) width;
+    }
 
+    private double clamp(double v, double min, double max) {
+        return Math.max(min, Math.min(max, v));
+    }
     
+    private static final float[] AXIS_XYZ = {0, 0, 0, 50, 0, 0, 0, 50, 0, 0, 0, 50};
+    private static final Color[] AXIS_COLORS = {Color.RED, Color.GREEN, Color.BLUE};
+    private static final String[] AXIS_LABELS = {"X", "Y", "Z"};
 
-    private void drawAxis(Graphics2D g2, int w, int h) {
-        Vector3 origin = new Vector3(0, 0, 0);
-        Vector3 xAxis  = new Vector3(50, 0, 0);
-        Vector3 yAxis  = new Vector3(0, 50, 0);
-        Vector3 zAxis  = new Vector3(0, 0, 50);
+    private void drawAxis(Graphics2D g2, View v) {
+        int[] sx = new int[4], sy = new int[4];
+        v.project(AXIS_XYZ, 0, 4, sx, sy, new float[4]);
 
-        Point o = projectToScreen(origin, w, h);
-        Point x = projectToScreen(xAxis,  w, h);
-        Point y = projectToScreen(yAxis,  w, h);
-        Point z = projectToScreen(zAxis,  w, h);
-
-        if (o == null) return;
+        if (sx[0] == View.CLIPPED) return;
 
         g2.setStroke(new BasicStroke(1.5f));
 
-        if (x != null) {
-            g2.setColor(Color.RED);
-            g2.drawLine(o.x, o.y, x.x, x.y);
-            g2.drawString("X", x.x + 5, x.y);
-        }
-        if (y != null) {
-            g2.setColor(Color.GREEN);
-            g2.drawLine(o.x, o.y, y.x, y.y);
-            g2.drawString("Y", y.x + 5, y.y);
-        }
-        if (z != null) {
-            g2.setColor(Color.BLUE);
-            g2.drawLine(o.x, o.y, z.x, z.y);
-            g2.drawString("Z", z.x + 5, z.y);
+        for (int a = 1; a <= 3; a++) {
+            if (sx[a] == View.CLIPPED) continue;
+            g2.setColor(AXIS_COLORS[a - 1]);
+            g2.drawLine(sx[0], sy[0], sx[a], sy[a]);
+            g2.drawString(AXIS_LABELS[a - 1], sx[a] + 5, sy[a]);
         }
     }
 
@@ -333,7 +556,7 @@ public class RandomWalk3DViewer extends JPanel
             orbitArmed = false;
             lastMouseX = x;
             lastMouseY = y;
-            repaint();
+            requestFrame();
             return;
 
         }
@@ -374,7 +597,7 @@ public class RandomWalk3DViewer extends JPanel
 
         lastMouseX = x;
         lastMouseY = y;
-        repaint();
+        requestFrame();
     }
 
 
@@ -384,7 +607,7 @@ public class RandomWalk3DViewer extends JPanel
         zoom *= (1 - notches * 0.1);
         if (zoom < 0.01) zoom = 0.01;
         if (zoom > 100.0) zoom = 100.0;
-        repaint();
+        requestFrame();
     }
 
     private void updateCamPosFromAngles() {
@@ -397,36 +620,43 @@ public class RandomWalk3DViewer extends JPanel
     
     // ===== Helper: pick world-space pivot from click =====
 
+    /** Nearest point on screen (nearest to the camera on ties), as drawn in the displayed frame. */
     private Vector3 findClosestWorldPointToScreen(int mouseX, int mouseY) {
-        if (generators == null || generators.isEmpty()) return null;
-        int w = getWidth();
-        int h = getHeight();
-
-        double bestDist2 = Double.MAX_VALUE;
-        Vector3 best = null;
-
-        for (PathGenerator gen : generators) {
-            List<Vector3> pts = gen.getPoints();
-            if (pts == null) continue;
-
-            for (Vector3 v : pts) {
-                Point2D.Double p = projectToScreenD(v, w, h);
-                if (p == null) continue;
-
-                double dx = mouseX - p.x;
-                double dy = mouseY - p.y;
-                double d2 = dx * dx + dy * dy;
-
-                if (d2 < bestDist2) {
-                    bestDist2 = d2;
-                    best = v;
+        if (buffers == null || buffers.isEmpty()) return null;
+
+        synchronized (frameLock) {
+            Frame f = frontFrame;
+            if (f == null) return null;
+
+            long bestDist2 = Long.MAX_VALUE;
+            float bestDepth = Float.POSITIVE_INFINITY;
+            float[] bestXyz = null;
+            int best = -1;
+
+            for (int bi = 0; bi < buffers.size(); bi++) {
+                PolylineBuffer buf = buffers.get(bi);
+                ScreenPoints sp = f.points[bi];
+
+                for (int i = 0; i < buf.pointCount(); i++) {
+                    if (sp.sx[i] == View.CLIPPED) continue;
+
+                    long dx = mouseX - sp.sx[i];
+                    long dy = mouseY - sp.sy[i];
+                    long d2 = dx * dx + dy * dy;
+
+                    if (d2 < bestDist2 || (d2 == bestDist2 && sp.depth[i] < bestDepth)) {
+                        bestDist2 = d2;
+                        bestDepth = sp.depth[i];
+                        bestXyz = buf.coords();
+                        best = i;
+                    }
                 }
             }
+            if (bestXyz == null) return null;
+            return new Vector3(bestXyz[3 * best], bestXyz[3 * best + 1], bestXyz[3 * best + 2]);
         }
-        return best;
     }
 
-
     // Unused but required
     @Override public void mouseMoved(MouseEvent e) {}
     @Override public void mouseClicked(MouseEvent e) {}
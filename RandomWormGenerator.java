@@ -1,17 +1,86 @@
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.random.RandomGenerator;
 
 public class RandomWormGenerator implements PathGenerator{
 
+    /** Random endpoints are drawn from the cube [-ENDPOINT_RANGE, ENDPOINT_RANGE]^3. */
+    public static final double ENDPOINT_RANGE = 30;
+
+    // Worms per PolylineBatch part in generateBatch (one task each); fixed so parts never depend on thread count
+    private static final int WORMS_PER_PART = 8;
+
     private final WormSettings settings;
-    private final Random rand = new Random();
+    private final RandomGenerator rand;
 
     private final List<Vector3> points = new ArrayList<>();
     private final List<Double> segmentSizes = new ArrayList<>();
 
     public RandomWormGenerator(WormSettings settings) {
+        this(settings, new SplittableRandom(settings.seed));
+    }
+
+    /** Draws from rand instead of a stream seeded by settings.seed. */
+    public RandomWormGenerator(WormSettings settings, RandomGenerator rand) {
         this.settings = settings;
+        this.rand = rand;
+    }
+
+    /**
+     * Generates count worms from template into one batch, on pool or serially if
+     * pool is null. Worm i draws only from the i-th stream split off
+     * SplittableRandom(template.seed) (random endpoints first, then its walk), so
+     * the batch is identical for a seed whatever the thread count.
+     * argb holds one colour per worm; null makes every worm white.
+     */
+    public static PolylineBatch generateBatch(WormSettings template, int count, boolean randomEndpoints,
+                                              int[] argb, ForkJoinPool pool) {
+        SplittableRandom root = new SplittableRandom(template.seed);
+        SplittableRandom[] streams = new SplittableRandom[count];
+        for (int i = 0; i < count; i++) streams[i] = root.split();
+
+        PolylineBatch[] parts = new PolylineBatch[(count + WORMS_PER_PART - 1) / WORMS_PER_PART];
+        Parallel.forRange(pool, parts.length, 1, (p0, p1) -> {
+            for (int p = p0; p < p1; p++) {
+                int i0 = p * WORMS_PER_PART;
+                int i1 = Math.min(count, i0 + WORMS_PER_PART);
+                PolylineBatch part = new PolylineBatch((i1 - i0) * (template.numSteps + 2), i1 - i0);
+                for (int i = i0; i < i1; i++) {
+                    WormSettings s = template.copy();
+                    if (randomEndpoints) {
+                        s.startPoint = randomPointInCube(streams[i]);
+                        s.endPoint = randomPointInCube(streams[i]);
+                    }
+                    RandomWormGenerator gen = new RandomWormGenerator(s, streams[i]);
+                    gen.generate();
+                    gen.appendTo(part, (argb != null) ? argb[i] : 0xFFFFFFFF);
+                    streams[i] = null;
+                }
+                parts[p] = part;
+            }
+        });
+        return PolylineBatch.concat(parts);
+    }
+
+    private static Vector3 randomPointInCube(RandomGenerator rand) {
+        return new Vector3(
+                rand.nextDouble(-ENDPOINT_RANGE, ENDPOINT_RANGE),
+                rand.nextDouble(-ENDPOINT_RANGE, ENDPOINT_RANGE),
+                rand.nextDouble(-ENDPOINT_RANGE, ENDPOINT_RANGE)
+        );
+    }
+
+    /** Appends the generated path to b as one polyline, every segment coloured argb. */
+    public void appendTo(PolylineBatch b, int argb) {
+        b.startPolyline(settings);
+        for (int i = 0; i < points.size(); i++) {
+            Vector3 v = points.get(i);
+            if (i == 0) b.addPoint(v.x, v.y, v.z);
+            else b.addPoint(v.x, v.y, v.z, segmentSizes.get(i - 1), argb);
+        }
+        b.endPolyline();
     }
 
     public void generate() {
@@ -37,6 +37,8 @@ public class SettingsPanel extends JPanel {
 
     private final JCheckBox rowsCheckbox;
     private final JCheckBox colsCheckbox;
+    private final JCheckBox solidCheckbox;
+    private final JCheckBox floatPrecisionCheckbox;
     private final JSpinner terrainDetailSpinner;
 
     public SettingsPanel() {
@@ -157,6 +159,11 @@ public class SettingsPanel extends JPanel {
         colsCheckbox = new JCheckBox("Draw cols");
         rowsCheckbox.setSelected(true);
         colsCheckbox.setSelected(true);
+        solidCheckbox = new JCheckBox("Solid (shaded)");
+        solidCheckbox.setSelected(false);
+
+        floatPrecisionCheckbox = new JCheckBox("Float storage (half-size exports and cache)");
+        floatPrecisionCheckbox.setSelected(false);
 
         // Layout terrain controls
         c.gridx = 0; c.gridy = row; add(new JLabel("Grid X:"), c);
@@ -204,10 +211,15 @@ public class SettingsPanel extends JPanel {
         JPanel wfPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 8, 0));
         wfPanel.add(rowsCheckbox);
         wfPanel.add(colsCheckbox);
+        wfPanel.add(solidCheckbox);
 
         c.gridx = 0; c.gridy = row; c.gridwidth = 2;
         add(wfPanel, c);
         row++;
+
+        c.gridx = 0; c.gridy = row; c.gridwidth = 2;
+        add(floatPrecisionCheckbox, c);
+        row++;
         c.gridwidth = 1;
 
         // ===== Initial enable/disable =====
@@ -228,7 +240,6 @@ public class SettingsPanel extends JPanel {
         gridXSpinner.setEnabled(terrain);
         gridZSpinner.setEnabled(terrain);
         spacingSpinner.setEnabled(terrain);
-        seedSpinner.setEnabled(terrain);
 
         noiseScaleSpinner.setEnabled(terrain);
         amplitudeSpinner.setEnabled(terrain);
@@ -243,6 +254,8 @@ public class SettingsPanel extends JPanel {
         terrainDetailSpinner.setEnabled(terrain);
         rowsCheckbox.setEnabled(terrain);
         colsCheckbox.setEnabled(terrain);
+        solidCheckbox.setEnabled(terrain);
+        floatPrecisionCheckbox.setEnabled(terrain);
 
         // Worm controls
         numWormsSpinner.setEnabled(!terrain);
@@ -269,6 +282,10 @@ public class SettingsPanel extends JPanel {
         return terrainModeCheckbox.isSelected();
     }
 
+    public boolean isSolidTerrain() {
+        return solidCheckbox.isSelected();
+    }
+
     public double getTerrainDetail() {
         return ((Number) terrainDetailSpinner.getValue()).doubleValue();
     }
@@ -293,6 +310,7 @@ public class SettingsPanel extends JPanel {
 
         ts.drawRows = rowsCheckbox.isSelected();
         ts.drawCols = colsCheckbox.isSelected();
+        ts.floatPrecision = floatPrecisionCheckbox.isSelected();
 
         return ts;
     }
@@ -337,6 +355,7 @@ public class SettingsPanel extends JPanel {
     // Build a WormSettings template (shared defaults for all worms)
     public WormSettings buildSettingsTemplate() {
         WormSettings s = new WormSettings();
+        s.seed = ((Number) seedSpinner.getValue()).longValue();
 
         if (!isRandomEndpoints()) {
             s.startPoint = parseVector(getStartText(), new Vector3(0, 0, 0));
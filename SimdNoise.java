@@ -0,0 +1,36 @@
+/**
+ * Optional SIMD kernels for {@link Noise}'s point batches, backed by
+ * jdk.incubator.vector. {@link #INSTANCE} is null, and callers stay on the
+ * scalar code, unless
+ *   - the JVM was started with --add-modules jdk.incubator.vector,
+ *   - the preferred vector shape holds at least 4 doubles, and
+ *   - -Dterrain.simd=false is not set.
+ * SimdNoiseTest holds the kernels to the scalar results bit for bit.
+ *
+ * This type has no incubator references, so it loads on any JVM.
+ */
+interface SimdNoise {
+    SimdNoise INSTANCE = detect();
+
+    int lanes();
+
+    /** out[i] = Noise.fbm3(xs[i], ys[i], zs[i], ...) for i < n. */
+    void fbm3(double[] xs, double[] ys, double[] zs, double[] out, int n,
+              double baseFreq, int octaves, double lacunarity, double gain, long seed);
+
+    /** out[i] = Noise.fbm2(xs[i], zs[i], ...) for i < n. */
+    void fbm2(double[] xs, double[] zs, double[] out, int n,
+              double baseFreq, int octaves, double lacunarity, double gain, long seed);
+
+    private static SimdNoise detect() {
+        if ("false".equals(System.getProperty("terrain.simd"))) return null;
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return null;
+
+        try {
+            SimdNoise simd = new VectorSimdNoise();
+            return simd.lanes() >= 4 ? simd : null;
+        } catch (LinkageError | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -1,7 +1,21 @@
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public final class SurfaceExtractor {
+    private SurfaceExtractor() {}
+
+    // simple directional light (vector-based)
+    private static final Vector3 LIGHT_DIR = new Vector3(0.35, 0.9, 0.25).normalize();
+
+    // x slabs per parallel task; each task evaluates two extra boundary slabs
+    private static final int BAND_SLABS = 16;
+
+    // lattice points per axis at which an octree node is sampled densely
+    private static final int LEAF_SIZE = 32;
 
     public static List<SurfacePoint> extractSurfacePoints(
             DensityField field,
@@ -11,51 +25,467 @@ public final class SurfaceExtractor {
             Vector3 clipOrigin,
             Vector3 clipNormalUnit
     ) {
-        ArrayList<SurfacePoint> out = new ArrayList<>();
+        return extractSurfacePoints(field, min, max, step, clipEnabled, clipOrigin, clipNormalUnit, ForkJoinPool.commonPool());
+    }
 
-        // precompute eps for gradient
-        Vector3 ex = new Vector3(step, 0, 0);
-        Vector3 ey = new Vector3(0, step, 0);
-        Vector3 ez = new Vector3(0, 0, step);
+    /**
+     * Density is evaluated once per lattice point (plus a one-sample border) into
+     * a ring of three x slabs; the surface test and the gradient normal are read
+     * from that ring. Bands of slabs run on {@code pool} (serially if null) and
+     * are concatenated in x order, so the output order is independent of threads.
+     *
+     * Fields that implement {@link DensityField#densityBounds} are walked as an
+     * octree instead: nodes whose bounds (grown by one sample for the neighbour
+     * test) are all air or all rock are skipped without sampling. Both paths
+     * return the same points in the same order.
+     *
+     * The field is called with a reused Vector3 per band and must not retain it.
+     */
+    public static List<SurfacePoint> extractSurfacePoints(
+            DensityField field,
+            Vector3 min, Vector3 max,
+            double step,
+            boolean clipEnabled,
+            Vector3 clipOrigin,
+            Vector3 clipNormalUnit,
+            ForkJoinPool pool
+    ) {
+        return extract(field, min, max, step, clipEnabled, clipOrigin, clipNormalUnit, pool).toList();
+    }
 
-        // simple directional light (vector-based)
-        Vector3 lightDir = new Vector3(0.35, 0.9, 0.25).normalize();
+    /**
+     * The points of {@link #extractSurfacePoints} in the same order, packed as
+     * floats (about a fifth of the memory). For clouds that are only drawn or
+     * exported.
+     */
+    public static SurfacePointBuffer extractSurfacePointBuffer(
+            DensityField field,
+            Vector3 min, Vector3 max,
+            double step,
+            boolean clipEnabled,
+            Vector3 clipOrigin,
+            Vector3 clipNormalUnit,
+            ForkJoinPool pool
+    ) {
+        return extract(field, min, max, step, clipEnabled, clipOrigin, clipNormalUnit, pool).toBuffer();
+    }
 
-        for (double x = min.x; x <= max.x; x += step) {
-            for (double y = min.y; y <= max.y; y += step) {
-                for (double z = min.z; z <= max.z; z += step) {
-                    Vector3 p = new Vector3(x, y, z);
+    private static Points extract(
+            DensityField field,
+            Vector3 min, Vector3 max,
+            double step,
+            boolean clipEnabled,
+            Vector3 clipOrigin,
+            Vector3 clipNormalUnit,
+            ForkJoinPool pool
+    ) {
+        if (!(step > 0)) throw new IllegalArgumentException("step must be > 0: " + step);
 
-                    if (clipEnabled) {
-                        double side = p.subtract(clipOrigin).dot(clipNormalUnit);
-                        if (side > 0) continue; // cut away the "front" half
-                    }
+        Lattice lat = new Lattice(min, max, step);
+        if (lat.nx == 0 || lat.ny == 0 || lat.nz == 0) return new Points(0);
+
+        Clip clip = clipEnabled ? new Clip(clipOrigin, clipNormalUnit) : null;
 
-                    double d = field.density(p);
+        // the sparse path sorts on a 31-bit lattice index
+        double[] range = new double[2];
+        if ((long) lat.nx * lat.ny * lat.nz < (1L << 31)
+                && field.densityBounds(lat.xs[0], lat.ys[0], lat.zs[0],
+                                       lat.xs[lat.nx + 1], lat.ys[lat.ny + 1], lat.zs[lat.nz + 1], range)) {
+            return extractSparse(field, lat, clip, pool);
+        }
+
+        int bands = (lat.nx + BAND_SLABS - 1) / BAND_SLABS;
+        Points[] parts = new Points[bands];
+
+        if (pool == null || bands == 1) {
+            for (int b = 0; b < bands; b++) parts[b] = extractBand(field, lat, clip, b);
+        } else {
+            pool.invoke(new SlabTask(field, lat, clip, parts, 0, bands));
+        }
+
+        int total = 0;
+        for (Points part : parts) total += part.n;
+        Points out = new Points(total);
+        for (Points part : parts) {
+            for (int i = 0; i < part.n; i++) out.addFrom(part, i);
+        }
+        return out;
+    }
+
+    private static Points extractBand(DensityField field, Lattice lat, Clip clip, int band) {
+        int i0 = band * BAND_SLABS;
+        int i1 = Math.min(lat.nx, i0 + BAND_SLABS);
+
+        int syz = (lat.ny + 2) * (lat.nz + 2);
+        double[] prev = new double[syz];
+        double[] cur = new double[syz];
+        double[] next = new double[syz];
+        SlabSampler sampler = new SlabSampler(field, lat, true);
+
+        // padded x index of lattice column i is i + 1
+        sampler.fill(lat.xs[i0], prev);
+        sampler.fill(lat.xs[i0 + 1], cur);
+
+        Points out = new Points(64);
+        int rowStride = lat.nz + 2;
+
+        for (int i = i0; i < i1; i++) {
+            sampler.fill(lat.xs[i + 2], next);
+            double x = lat.xs[i + 1];
+
+            for (int j = 1; j <= lat.ny; j++) {
+                double y = lat.ys[j];
+                int row = j * rowStride;
+
+                for (int k = 1; k <= lat.nz; k++) {
+                    double z = lat.zs[k];
+                    int c = row + k;
+
+                    if (clip != null && clip.cuts(x, y, z)) continue; // cut away the "front" half
+
+                    double d = cur[c];
                     if (d <= 0) continue; // air
 
+                    double xp = next[c], xm = prev[c];
+                    double yp = cur[c + rowStride], ym = cur[c - rowStride];
+                    double zp = cur[c + 1], zm = cur[c - 1];
+
                     // surface test: any 6-neighbor is air
-                    if (field.density(p.add(ex)) > 0 &&
-                        field.density(p.subtract(ex)) > 0 &&
-                        field.density(p.add(ey)) > 0 &&
-                        field.density(p.subtract(ey)) > 0 &&
-                        field.density(p.add(ez)) > 0 &&
-                        field.density(p.subtract(ez)) > 0) {
+                    if (xp > 0 && xm > 0 && yp > 0 && ym > 0 && zp > 0 && zm > 0) {
                         continue; // fully inside rock -> do not draw
                     }
 
-                    // gradient normal
-                    double gx = field.density(p.add(ex)) - field.density(p.subtract(ex));
-                    double gy = field.density(p.add(ey)) - field.density(p.subtract(ey));
-                    double gz = field.density(p.add(ez)) - field.density(p.subtract(ez));
+                    out.add(x, y, z, xp - xm, yp - ym, zp - zm);
+                }
+            }
+
+            double[] t = prev;
+            prev = cur;
+            cur = next;
+            next = t;
+        }
+        return out;
+    }
+
 
-                    Vector3 n = new Vector3(gx, gy, gz).normalize();
-                    double light = Math.max(0.08, Math.min(1.0, n.dot(lightDir)));
+    private static SurfacePoint surfacePoint(double x, double y, double z, double gx, double gy, double gz) {
+        // gradient normal
+        Vector3 n;
+        double len = Math.sqrt(gx * gx + gy * gy + gz * gz);
+        if (len < 1e-9) n = new Vector3(0, 0, 0);
+        else n = new Vector3(gx / len, gy / len, gz / len);
 
-                    out.add(new SurfacePoint(p, n, light));
+        double light = Math.max(0.08, Math.min(1.0, n.dot(LIGHT_DIR)));
+        return new SurfacePoint(new Vector3(x, y, z), n, light);
+    }
+
+    /**
+     * Surface samples as position plus raw density gradient, 6 doubles each; turned
+     * into SurfacePoints or a float SurfacePointBuffer once the whole cloud is known.
+     */
+    private static final class Points {
+        double[] v;
+        int n;
+
+        Points(int capacity) {
+            v = new double[Math.max(1, capacity) * 6];
+        }
+
+        void add(double x, double y, double z, double gx, double gy, double gz) {
+            if ((n + 1) * 6 > v.length) v = Arrays.copyOf(v, v.length * 2);
+            int o = n++ * 6;
+            v[o] = x; v[o + 1] = y; v[o + 2] = z;
+            v[o + 3] = gx; v[o + 4] = gy; v[o + 5] = gz;
+        }
+
+        void addFrom(Points p, int i) {
+            int o = i * 6;
+            add(p.v[o], p.v[o + 1], p.v[o + 2], p.v[o + 3], p.v[o + 4], p.v[o + 5]);
+        }
+
+        List<SurfacePoint> toList() {
+            ArrayList<SurfacePoint> out = new ArrayList<>(n);
+            for (int o = 0; o < n * 6; o += 6) {
+                out.add(surfacePoint(v[o], v[o + 1], v[o + 2], v[o + 3], v[o + 4], v[o + 5]));
+            }
+            return out;
+        }
+
+        SurfacePointBuffer toBuffer() {
+            SurfacePointBuffer out = new SurfacePointBuffer(n);
+            for (int i = 0; i < n; i++) {
+                int o = i * 6;
+                double gx = v[o + 3], gy = v[o + 4], gz = v[o + 5];
+                double len = Math.sqrt(gx * gx + gy * gy + gz * gz);
+                double nx = 0, ny = 0, nz = 0;
+                if (!(len < 1e-9)) {
+                    nx = gx / len;
+                    ny = gy / len;
+                    nz = gz / len;
                 }
+                double light = Math.max(0.08, Math.min(1.0, nx * LIGHT_DIR.x + ny * LIGHT_DIR.y + nz * LIGHT_DIR.z));
+                out.set(i, v[o], v[o + 1], v[o + 2], nx, ny, nz, light);
             }
+            return out;
+        }
+    }
+
+    // ===== Sparse (octree) extraction =====
+
+    /** Points of one leaf, tagged with their lattice index (i*ny + j)*nz + k. */
+    private static final class Leaf {
+        long[] keys = new long[64];
+        final Points points = new Points(64);
+
+        void add(long key, double x, double y, double z, double gx, double gy, double gz) {
+            if (points.n == keys.length) keys = Arrays.copyOf(keys, keys.length * 2);
+            keys[points.n] = key;
+            points.add(x, y, z, gx, gy, gz);
         }
+    }
+
+    private static Points extractSparse(DensityField field, Lattice lat, Clip clip, ForkJoinPool pool) {
+        ConcurrentLinkedQueue<Leaf> leaves = new ConcurrentLinkedQueue<>();
+        OctreeTask root = new OctreeTask(field, lat, clip, leaves, pool != null, 0, lat.nx, 0, lat.ny, 0, lat.nz);
+        if (pool == null) root.compute();
+        else pool.invoke(root);
+
+        // leaves finish in any order; sorting on the lattice index restores the dense x, y, z order
+        int total = 0;
+        for (Leaf leaf : leaves) total += leaf.points.n;
+        long[] order = new long[total];
+        Points all = new Points(total);
+        for (Leaf leaf : leaves) {
+            for (int i = 0; i < leaf.points.n; i++) {
+                order[all.n] = (leaf.keys[i] << 32) | all.n;
+                all.addFrom(leaf.points, i);
+            }
+        }
+        Arrays.sort(order);
+
+        Points out = new Points(total);
+        for (long o : order) out.addFrom(all, (int) o);
         return out;
     }
+
+    /** Samples lattice points [i0,i1)x[j0,j1)x[k0,k1) plus a one-sample border. */
+    private static Leaf sampleLeaf(DensityField field, Lattice lat, Clip clip,
+                                   int i0, int i1, int j0, int j1, int k0, int k1) {
+        int a = i1 - i0, b = j1 - j0, c = k1 - k0;
+        int sy = c + 2, sx = (b + 2) * sy;
+        double[] d = new double[(a + 2) * sx];
+        double[] px = new double[d.length], py = new double[d.length], pz = new double[d.length];
+
+        // local index 0 is padded lattice index i0, i.e. lattice point i0 - 1
+        int idx = 0;
+        for (int ia = 0; ia < a + 2; ia++) {
+            for (int jb = 0; jb < b + 2; jb++) {
+                for (int kc = 0; kc < c + 2; kc++) {
+                    px[idx] = lat.xs[i0 + ia];
+                    py[idx] = lat.ys[j0 + jb];
+                    pz[idx] = lat.zs[k0 + kc];
+                    idx++;
+                }
+            }
+        }
+        field.densityBatch(px, py, pz, d, d.length);
+
+        Leaf leaf = new Leaf();
+        for (int ia = 1; ia <= a; ia++) {
+            double x = lat.xs[i0 + ia];
+            for (int jb = 1; jb <= b; jb++) {
+                double y = lat.ys[j0 + jb];
+                for (int kc = 1; kc <= c; kc++) {
+                    double z = lat.zs[k0 + kc];
+                    int q = ia * sx + jb * sy + kc;
+
+                    if (clip != null && clip.cuts(x, y, z)) continue;
+                    if (d[q] <= 0) continue;
+
+                    double xp = d[q + sx], xm = d[q - sx];
+                    double yp = d[q + sy], ym = d[q - sy];
+                    double zp = d[q + 1], zm = d[q - 1];
+                    if (xp > 0 && xm > 0 && yp > 0 && ym > 0 && zp > 0 && zm > 0) continue;
+
+                    long key = ((long) (i0 + ia - 1) * lat.ny + (j0 + jb - 1)) * lat.nz + (k0 + kc - 1);
+                    leaf.add(key, x, y, z, xp - xm, yp - ym, zp - zm);
+                }
+            }
+        }
+        return leaf;
+    }
+
+    private static final class OctreeTask extends RecursiveAction {
+        private final DensityField field;
+        private final Lattice lat;
+        private final Clip clip;
+        private final ConcurrentLinkedQueue<Leaf> leaves;
+        private final boolean fork;
+        private final int i0, i1, j0, j1, k0, k1;
+
+        OctreeTask(DensityField field, Lattice lat, Clip clip, ConcurrentLinkedQueue<Leaf> leaves, boolean fork,
+                   int i0, int i1, int j0, int j1, int k0, int k1) {
+            this.field = field;
+            this.lat = lat;
+            this.clip = clip;
+            this.leaves = leaves;
+            this.fork = fork;
+            this.i0 = i0; this.i1 = i1;
+            this.j0 = j0; this.j1 = j1;
+            this.k0 = k0; this.k1 = k1;
+        }
+
+        @Override
+        protected void compute() {
+            // lattice points are at padded index + 1, so [xs[i0+1], xs[i1]] is the node
+            // and [xs[i0], xs[i1+1]] includes the neighbours used by the surface test
+            if (clip != null && clip.cutsBox(lat.xs[i0 + 1], lat.ys[j0 + 1], lat.zs[k0 + 1], lat.xs[i1], lat.ys[j1], lat.zs[k1])) {
+                return;
+            }
+            double[] range = new double[2];
+            if (field.densityBounds(lat.xs[i0], lat.ys[j0], lat.zs[k0], lat.xs[i1 + 1], lat.ys[j1 + 1], lat.zs[k1 + 1], range)
+                    && (range[1] <= 0 || range[0] > 0)) {
+                return; // all air or all rock: no boundary voxels
+            }
+
+            if (i1 - i0 <= LEAF_SIZE && j1 - j0 <= LEAF_SIZE && k1 - k0 <= LEAF_SIZE) {
+                Leaf leaf = sampleLeaf(field, lat, clip, i0, i1, j0, j1, k0, k1);
+                if (leaf.points.n > 0) leaves.add(leaf);
+                return;
+            }
+
+            int im = (i1 - i0 > LEAF_SIZE) ? (i0 + i1) >>> 1 : i1;
+            int jm = (j1 - j0 > LEAF_SIZE) ? (j0 + j1) >>> 1 : j1;
+            int km = (k1 - k0 > LEAF_SIZE) ? (k0 + k1) >>> 1 : k1;
+
+            List<OctreeTask> children = new ArrayList<>(8);
+            for (int[] x : new int[][]{{i0, im}, {im, i1}}) {
+                for (int[] y : new int[][]{{j0, jm}, {jm, j1}}) {
+                    for (int[] z : new int[][]{{k0, km}, {km, k1}}) {
+                        if (x[0] < x[1] && y[0] < y[1] && z[0] < z[1]) {
+                            children.add(new OctreeTask(field, lat, clip, leaves, fork, x[0], x[1], y[0], y[1], z[0], z[1]));
+                        }
+                    }
+                }
+            }
+
+            if (fork) {
+                invokeAll(children);
+            } else {
+                for (OctreeTask child : children) child.compute();
+            }
+        }
+    }
+
+    // ===== Lattice =====
+
+    /**
+     * Sample coordinates per axis with one padding sample on each side:
+     * c[0] = min - step, c[1..n] = the lattice (accumulated as min, min+step, ...
+     * while <= max), c[n+1] = c[n] + step. Shared with {@link SurfaceNets}.
+     */
+    static final class Lattice {
+        final double[] xs, ys, zs;
+        final int nx, ny, nz;
+
+        Lattice(Vector3 min, Vector3 max, double step) {
+            xs = axis(min.x, max.x, step);
+            ys = axis(min.y, max.y, step);
+            zs = axis(min.z, max.z, step);
+            nx = xs.length - 2;
+            ny = ys.length - 2;
+            nz = zs.length - 2;
+        }
+
+        private static double[] axis(double lo, double hi, double step) {
+            int n = 0;
+            for (double v = lo; v <= hi; v += step) n++;
+
+            double[] c = new double[n + 2];
+            c[0] = lo - step;
+            double v = lo;
+            for (int i = 1; i <= n; i++, v += step) c[i] = v;
+            c[n + 1] = v;
+            return c;
+        }
+    }
+
+    /** Samples x-slabs, [y][z] order, through {@link DensityField#densityBatch}. */
+    static final class SlabSampler {
+        private final DensityField field;
+        private final double[] xs, ys, zs;
+
+        /** padded: include the lattice's border rows (SurfaceExtractor) or not (SurfaceNets). */
+        SlabSampler(DensityField field, Lattice lat, boolean padded) {
+            this.field = field;
+            int lo = padded ? 0 : 1;
+            int ny = padded ? lat.ny + 2 : lat.ny;
+            int nz = padded ? lat.nz + 2 : lat.nz;
+            xs = new double[ny * nz];
+            ys = new double[ny * nz];
+            zs = new double[ny * nz];
+            int idx = 0;
+            for (int j = 0; j < ny; j++) {
+                for (int k = 0; k < nz; k++, idx++) {
+                    ys[idx] = lat.ys[lo + j];
+                    zs[idx] = lat.zs[lo + k];
+                }
+            }
+        }
+
+        void fill(double x, double[] slab) {
+            Arrays.fill(xs, x);
+            field.densityBatch(xs, ys, zs, slab, xs.length);
+        }
+    }
+
+    private static final class Clip {
+        final double ox, oy, oz, nx, ny, nz;
+
+        Clip(Vector3 origin, Vector3 normalUnit) {
+            ox = origin.x; oy = origin.y; oz = origin.z;
+            nx = normalUnit.x; ny = normalUnit.y; nz = normalUnit.z;
+        }
+
+        boolean cuts(double x, double y, double z) {
+            return (x - ox) * nx + (y - oy) * ny + (z - oz) * nz > 0;
+        }
+
+        /** True when every corner, and so the whole box, is cut away. */
+        boolean cutsBox(double x0, double y0, double z0, double x1, double y1, double z1) {
+            return cuts(x0, y0, z0) && cuts(x1, y0, z0) && cuts(x0, y1, z0) && cuts(x1, y1, z0)
+                && cuts(x0, y0, z1) && cuts(x1, y0, z1) && cuts(x0, y1, z1) && cuts(x1, y1, z1);
+        }
+    }
+
+    // ===== Parallel bands =====
+
+    private static final class SlabTask extends RecursiveAction {
+        private final DensityField field;
+        private final Lattice lat;
+        private final Clip clip;
+        private final Points[] parts;
+        private final int b0, b1;
+
+        SlabTask(DensityField field, Lattice lat, Clip clip, Points[] parts, int b0, int b1) {
+            this.field = field;
+            this.lat = lat;
+            this.clip = clip;
+            this.parts = parts;
+            this.b0 = b0;
+            this.b1 = b1;
+        }
+
+        @Override
+        protected void compute() {
+            if (b1 - b0 == 1) {
+                // distinct slots; invoke() publishes them to the caller
+                parts[b0] = extractBand(field, lat, clip, b0);
+                return;
+            }
+            int mid = (b0 + b1) >>> 1;
+            invokeAll(new SlabTask(field, lat, clip, parts, b0, mid),
+                      new SlabTask(field, lat, clip, parts, mid, b1));
+        }
+    }
 }
@@ -0,0 +1,295 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Naive surface nets over a {@link DensityField}: one vertex per lattice cell
+ * whose corners straddle the surface (placed at the mean of its edge crossings),
+ * and one quad per sign-changing lattice edge joining the four cells around it.
+ * The result is a watertight indexed mesh with shared vertices, unlike the
+ * point cloud from {@link SurfaceExtractor}.
+ *
+ * Density is sampled once per lattice point into two rolling x slabs. Bands of
+ * cell slabs run in parallel and are stitched in x order, so vertex and index
+ * order do not depend on the number of threads.
+ */
+public final class SurfaceNets {
+    private SurfaceNets() {}
+
+    private static final int BAND_SLABS = 16;
+    private static final int NONE = Integer.MIN_VALUE;
+
+    // corner c = (x bit 0, y bit 1, z bit 2); the 12 cell edges as corner pairs
+    private static final int[] EDGE_A = {0, 2, 4, 6, 0, 1, 4, 5, 0, 1, 2, 3};
+    private static final int[] EDGE_B = {1, 3, 5, 7, 2, 3, 6, 7, 4, 5, 6, 7};
+
+    public static TerrainMesh extractMesh(DensityField field, Vector3 min, Vector3 max, double step) {
+        return extractMesh(field, min, max, step, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Same lattice as {@link SurfaceExtractor} (min, min+step, ... while <= max).
+     * Normals point from solid (density > 0) into air; triangles are
+     * counter-clockwise seen from that side. The mesh has no vertex grid.
+     */
+    public static TerrainMesh extractMesh(DensityField field, Vector3 min, Vector3 max, double step, ForkJoinPool pool) {
+        if (!(step > 0)) throw new IllegalArgumentException("step must be > 0: " + step);
+
+        SurfaceExtractor.Lattice lat = new SurfaceExtractor.Lattice(min, max, step);
+        if (lat.nx < 2 || lat.ny < 2 || lat.nz < 2) {
+            return new TerrainMesh(new float[0], new float[0], new int[0], 0, 0, 0, 0);
+        }
+
+        int bands = (lat.nx - 1 + BAND_SLABS - 1) / BAND_SLABS;
+        Part[] parts = new Part[bands];
+        if (pool == null || bands == 1) {
+            for (int b = 0; b < bands; b++) parts[b] = meshBand(field, lat, b);
+        } else {
+            pool.invoke(new NetTask(field, lat, parts, 0, bands));
+        }
+        return stitch(parts);
+    }
+
+    // ===== One band of cell slabs =====
+
+    /** Vertices and triangles of one band; indices are band local until stitched. */
+    private static final class Part {
+        float[] vertices = new float[3 * 256];
+        float[] normals = new float[3 * 256];
+        int vertexCount;
+        int[] indices = new int[6 * 256];
+        int indexCount;
+        int lastSlabStart; // first vertex of the band's last cell slab
+
+        void addVertex(float x, float y, float z, float nx, float ny, float nz) {
+            if (3 * vertexCount == vertices.length) {
+                vertices = Arrays.copyOf(vertices, vertices.length * 2);
+                normals = Arrays.copyOf(normals, normals.length * 2);
+            }
+            int o = 3 * vertexCount++;
+            vertices[o] = x; vertices[o + 1] = y; vertices[o + 2] = z;
+            normals[o] = nx; normals[o + 1] = ny; normals[o + 2] = nz;
+        }
+
+        /** Quad c00 -> c10 -> c11 -> c01, reversed when {@code flip}. */
+        void addQuad(int c00, int c10, int c11, int c01, boolean flip) {
+            if (indexCount + 6 > indices.length) indices = Arrays.copyOf(indices, indices.length * 2);
+            int[] t = indices;
+            int o = indexCount;
+            if (flip) {
+                t[o] = c00; t[o + 1] = c11; t[o + 2] = c10;
+                t[o + 3] = c00; t[o + 4] = c01; t[o + 5] = c11;
+            } else {
+                t[o] = c00; t[o + 1] = c10; t[o + 2] = c11;
+                t[o + 3] = c00; t[o + 4] = c11; t[o + 5] = c01;
+            }
+            indexCount += 6;
+        }
+    }
+
+    /**
+     * Cell slab i lies between sample slabs i and i+1. A band owns cell slabs
+     * [c0, c1) and every quad whose cells' highest x slab is in that range. The
+     * quads on its lower face also touch cell slab c0-1, owned by the previous
+     * band. That slab is re-sampled here only to number its vertices, which are
+     * stored as -(ordinal + 1) and resolved in {@link #stitch}.
+     */
+    private static Part meshBand(DensityField field, SurfaceExtractor.Lattice lat, int band) {
+        int ncx = lat.nx - 1, ny = lat.ny, nz = lat.nz;
+        int c0 = band * BAND_SLABS;
+        int c1 = Math.min(ncx, c0 + BAND_SLABS);
+        int first = c0 > 0 ? c0 - 1 : c0;
+
+        double[] sa = new double[ny * nz];
+        double[] sb = new double[ny * nz];
+        int[] prevIds = new int[(ny - 1) * (nz - 1)];
+        int[] curIds = new int[(ny - 1) * (nz - 1)];
+        SurfaceExtractor.SlabSampler sampler = new SurfaceExtractor.SlabSampler(field, lat, false);
+        Part part = new Part();
+
+        // lattice sample n sits at padded index n + 1
+        sampler.fill(lat.xs[first + 1], sa);
+        for (int ci = first; ci < c1; ci++) {
+            sampler.fill(lat.xs[ci + 2], sb);
+
+            if (ci < c0) {
+                numberCells(sa, sb, ny, nz, curIds);
+            } else {
+                if (ci == c1 - 1) part.lastSlabStart = part.vertexCount;
+                cellVertices(lat, ci, sa, sb, curIds, part);
+                quadsX(sa, sb, ny, nz, curIds, part);
+                if (ci > 0) quadsYZ(sa, ny, nz, prevIds, curIds, part);
+            }
+
+            double[] ts = sa; sa = sb; sb = ts;
+            int[] ti = prevIds; prevIds = curIds; curIds = ti;
+        }
+        return part;
+    }
+
+    private static boolean straddles(double[] sa, double[] sb, int s, int nz) {
+        int s2 = s + nz;
+        boolean solid = sa[s] > 0;
+        return (sb[s] > 0) != solid || (sa[s2] > 0) != solid || (sb[s2] > 0) != solid
+                || (sa[s + 1] > 0) != solid || (sb[s + 1] > 0) != solid
+                || (sa[s2 + 1] > 0) != solid || (sb[s2 + 1] > 0) != solid;
+    }
+
+    private static void numberCells(double[] sa, double[] sb, int ny, int nz, int[] ids) {
+        int ord = 0;
+        for (int j = 0; j < ny - 1; j++) {
+            for (int k = 0; k < nz - 1; k++) {
+                ids[j * (nz - 1) + k] = straddles(sa, sb, j * nz + k, nz) ? -(ord++ + 1) : NONE;
+            }
+        }
+    }
+
+    private static void cellVertices(SurfaceExtractor.Lattice lat, int ci, double[] sa, double[] sb, int[] ids, Part part) {
+        int ny = lat.ny, nz = lat.nz;
+        double x0 = lat.xs[ci + 1], x1 = lat.xs[ci + 2];
+        double[] d = new double[8];
+
+        for (int j = 0; j < ny - 1; j++) {
+            double y0 = lat.ys[j + 1], y1 = lat.ys[j + 2];
+            for (int k = 0; k < nz - 1; k++) {
+                int s = j * nz + k;
+                if (!straddles(sa, sb, s, nz)) {
+                    ids[j * (nz - 1) + k] = NONE;
+                    continue;
+                }
+                double z0 = lat.zs[k + 1], z1 = lat.zs[k + 2];
+
+                d[0] = sa[s];          d[1] = sb[s];
+                d[2] = sa[s + nz];     d[3] = sb[s + nz];
+                d[4] = sa[s + 1];      d[5] = sb[s + 1];
+                d[6] = sa[s + nz + 1]; d[7] = sb[s + nz + 1];
+
+                // mean of the edge crossings, in cell-local [0,1]^3
+                double fx = 0, fy = 0, fz = 0;
+                int crossings = 0;
+                for (int e = 0; e < 12; e++) {
+                    int a = EDGE_A[e], b = EDGE_B[e];
+                    if ((d[a] > 0) == (d[b] > 0)) continue;
+                    double t = d[a] / (d[a] - d[b]);
+                    fx += (a & 1) + t * ((b & 1) - (a & 1));
+                    fy += ((a >> 1) & 1) + t * (((b >> 1) & 1) - ((a >> 1) & 1));
+                    fz += ((a >> 2) & 1) + t * (((b >> 2) & 1) - ((a >> 2) & 1));
+                    crossings++;
+                }
+                fx /= crossings; fy /= crossings; fz /= crossings;
+
+                // trilinear gradient at the cell centre; density rises into rock, so negate
+                double gx = ((d[1] - d[0]) + (d[3] - d[2]) + (d[5] - d[4]) + (d[7] - d[6])) / (x1 - x0);
+                double gy = ((d[2] - d[0]) + (d[3] - d[1]) + (d[6] - d[4]) + (d[7] - d[5])) / (y1 - y0);
+                double gz = ((d[4] - d[0]) + (d[5] - d[1]) + (d[6] - d[2]) + (d[7] - d[3])) / (z1 - z0);
+                double len = Math.sqrt(gx * gx + gy * gy + gz * gz);
+                double inv = len < 1e-12 ? 0 : -1.0 / len;
+
+                ids[j * (nz - 1) + k] = part.vertexCount;
+                part.addVertex(
+                        (float) (x0 + fx * (x1 - x0)),
+                        (float) (y0 + fy * (y1 - y0)),
+                        (float) (z0 + fz * (z1 - z0)),
+                        (float) (gx * inv), (float) (gy * inv), (float) (gz * inv));
+            }
+        }
+    }
+
+    /** Edges from sample slab ci to ci+1; their four cells all lie in cell slab ci. */
+    private static void quadsX(double[] sa, double[] sb, int ny, int nz, int[] cur, Part part) {
+        int cz = nz - 1;
+        for (int j = 1; j < ny - 1; j++) {
+            for (int k = 1; k < nz - 1; k++) {
+                boolean a = sa[j * nz + k] > 0, b = sb[j * nz + k] > 0;
+                if (a == b) continue;
+                // (u, v) = (y, z); outward is +x when the lower sample is solid
+                part.addQuad(cur[(j - 1) * cz + k - 1], cur[j * cz + k - 1], cur[j * cz + k], cur[(j - 1) * cz + k], !a);
+            }
+        }
+    }
+
+    /** Y and Z edges inside sample slab ci; their cells are in cell slabs ci-1 and ci. */
+    private static void quadsYZ(double[] s, int ny, int nz, int[] prev, int[] cur, Part part) {
+        int cz = nz - 1;
+        for (int j = 0; j < ny - 1; j++) {
+            for (int k = 1; k < nz - 1; k++) {
+                boolean a = s[j * nz + k] > 0, b = s[(j + 1) * nz + k] > 0;
+                if (a == b) continue;
+                // (u, v) = (z, x)
+                part.addQuad(prev[j * cz + k - 1], prev[j * cz + k], cur[j * cz + k], cur[j * cz + k - 1], !a);
+            }
+        }
+        for (int j = 1; j < ny - 1; j++) {
+            for (int k = 0; k < nz - 1; k++) {
+                boolean a = s[j * nz + k] > 0, b = s[j * nz + k + 1] > 0;
+                if (a == b) continue;
+                // (u, v) = (x, y)
+                part.addQuad(prev[(j - 1) * cz + k], cur[(j - 1) * cz + k], cur[j * cz + k], prev[j * cz + k], !a);
+            }
+        }
+    }
+
+    // ===== Stitching =====
+
+    private static TerrainMesh stitch(Part[] parts) {
+        int[] base = new int[parts.length];
+        int vertexTotal = 0, indexTotal = 0;
+        for (int b = 0; b < parts.length; b++) {
+            base[b] = vertexTotal;
+            vertexTotal += parts[b].vertexCount;
+            indexTotal += parts[b].indexCount;
+        }
+
+        float[] vertices = new float[3 * vertexTotal];
+        float[] normals = new float[3 * vertexTotal];
+        int[] indices = new int[indexTotal];
+        int io = 0;
+
+        for (int b = 0; b < parts.length; b++) {
+            Part p = parts[b];
+            System.arraycopy(p.vertices, 0, vertices, 3 * base[b], 3 * p.vertexCount);
+            System.arraycopy(p.normals, 0, normals, 3 * base[b], 3 * p.vertexCount);
+
+            int prevSlab = b > 0 ? base[b - 1] + parts[b - 1].lastSlabStart : 0;
+            for (int i = 0; i < p.indexCount; i++) {
+                int id = p.indices[i];
+                indices[io++] = id >= 0 ? base[b] + id : prevSlab - id - 1;
+            }
+        }
+
+        double minY = Double.POSITIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int v = 1; v < vertices.length; v += 3) {
+            minY = Math.min(minY, vertices[v]);
+            maxY = Math.max(maxY, vertices[v]);
+        }
+        if (vertexTotal == 0) minY = maxY = 0;
+
+        return new TerrainMesh(vertices, normals, indices, 0, 0, minY, maxY);
+    }
+
+    private static final class NetTask extends RecursiveAction {
+        private final DensityField field;
+        private final SurfaceExtractor.Lattice lat;
+        private final Part[] parts;
+        private final int b0, b1;
+
+        NetTask(DensityField field, SurfaceExtractor.Lattice lat, Part[] parts, int b0, int b1) {
+            this.field = field;
+            this.lat = lat;
+            this.parts = parts;
+            this.b0 = b0;
+            this.b1 = b1;
+        }
+
+        @Override
+        protected void compute() {
+            if (b1 - b0 == 1) {
+                parts[b0] = meshBand(field, lat, b0);
+                return;
+            }
+            int mid = (b0 + b1) >>> 1;
+            invokeAll(new NetTask(field, lat, parts, b0, mid),
+                      new NetTask(field, lat, parts, mid, b1));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * A surface point cloud packed into float arrays: about 28 bytes per point,
+ * against ~150 for a {@link SurfacePoint} with its two Vector3s. Point i has
+ * position [3i, 3i+2] in coords(), normal [3i, 3i+2] in normals() and light
+ * lights()[i] (0..1).
+ */
+public final class SurfacePointBuffer {
+    private final float[] coords;
+    private final float[] normals;
+    private final float[] lights;
+
+    public SurfacePointBuffer(int size) {
+        coords = new float[size * 3];
+        normals = new float[size * 3];
+        lights = new float[size];
+    }
+
+    public int size() {
+        return lights.length;
+    }
+
+    public void set(int i, double x, double y, double z, double nx, double ny, double nz, double light) {
+        int o = i * 3;
+        coords[o] = (float) x;
+        coords[o + 1] = (float) y;
+        coords[o + 2] = (float) z;
+        normals[o] = (float) nx;
+        normals[o + 1] = (float) ny;
+        normals[o + 2] = (float) nz;
+        lights[i] = (float) light;
+    }
+
+    /** x,y,z of point i live at [3i, 3i+2]. Do not modify. */
+    public float[] coords() {
+        return coords;
+    }
+
+    /** Unit normal of point i at [3i, 3i+2]. Do not modify. */
+    public float[] normals() {
+        return normals;
+    }
+
+    /** Do not modify. */
+    public float[] lights() {
+        return lights;
+    }
+}
@@ -0,0 +1,580 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Compact little-endian binary export / import of heightmaps, SurfacePoint
+ * clouds and meshes, plus binary PLY / STL export of meshes.
+ *
+ * Files are written and read through FileChannel.map in windows of at most
+ * {@link #WINDOW} bytes, so multi-GB outputs never pass through heap byte arrays.
+ *
+ * Native layout: "TGEN" magic, int version, int kind, long seed, byte hasSettings,
+ * [TerrainSettings fields], payload, int CRC32C of everything before it.
+ * Heightmap samples are doubles, or floats when the stored settings have
+ * floatPrecision set.
+ * Truncated or corrupted files fail {@link #read} with an IOException.
+ */
+public final class TerrainIO {
+    private TerrainIO() {}
+
+    public static final int KIND_HEIGHTMAP = 1;
+    public static final int KIND_POINTS = 2;
+    public static final int KIND_MESH = 3;
+    public static final int KIND_POLYLINES = 4;
+
+    private static final int MAGIC = 0x4E454754;   // "TGEN" read as little-endian int
+    private static final int VERSION = 3;          // 2: CRC32C trailer, 3: floatPrecision setting
+    private static final long WINDOW = 1L << 28;
+
+    private static final int HEADER_BYTES = 4 + 4 + 4 + 8 + 1;
+    private static final int TRAILER_BYTES = 4;
+    private static final int SETTINGS_BYTES = 4 + 4 + 8 + 8 + 8 + 8 + 4 + 8 + 8 + 1 + 1 + 8 + 1 + 1 + 8 + 8 + 1;
+
+    /** Everything a native file holds; only the field matching kind is set. */
+    public static final class TerrainFile {
+        public final int kind;
+        public final long seed;
+        public final TerrainSettings settings;   // null if the writer had none
+
+        public Heightmap heights;
+        public List<SurfacePoint> points;
+        public TerrainMesh mesh;
+        public PolylineBatch polylines;          // per-polyline settings are not stored
+
+        TerrainFile(int kind, long seed, TerrainSettings settings) {
+            this.kind = kind;
+            this.seed = seed;
+            this.settings = settings;
+        }
+    }
+
+    // ===== Native format: write =====
+
+    /** heights is [z][x] (rectangular), e.g. a HeightChunk's. */
+    public static void writeHeightmap(Path file, TerrainSettings ts, long seed, double[][] heights) throws IOException {
+        writeHeightmap(file, ts, seed, Heightmap.fromRows(heights));
+    }
+
+    /** Samples are written row by row, as floats if ts.floatPrecision is set. */
+    public static void writeHeightmap(Path file, TerrainSettings ts, long seed, Heightmap heights) throws IOException {
+        int gx = heights.width;
+        int gz = heights.depth;
+        boolean f32 = ts != null && ts.floatPrecision;
+        long size = headerSize(ts) + 8 + (long) gx * gz * (f32 ? 4 : 8);
+
+        try (MappedOutput out = new MappedOutput(file, size)) {
+            writeHeader(out, KIND_HEIGHTMAP, seed, ts);
+            out.putInt(gx);
+            out.putInt(gz);
+            if (f32) {
+                float[] row = new float[gx];
+                for (int z = 0; z < gz; z++) {
+                    for (int x = 0; x < gx; x++) row[x] = (float) heights.data[z * gx + x];
+                    out.putFloats(row, 0, gx);
+                }
+            } else {
+                out.putDoubles(heights.data, 0, heights.data.length);
+            }
+            out.putChecksum();
+        }
+    }
+
+    /** Positions and normals are stored as float, light as float. */
+    public static void writePoints(Path file, TerrainSettings ts, long seed, SurfacePointBuffer points) throws IOException {
+        int n = points.size();
+        long size = headerSize(ts) + 8 + (long) n * 7 * 4;
+
+        try (MappedOutput out = new MappedOutput(file, size)) {
+            writeHeader(out, KIND_POINTS, seed, ts);
+            out.putLong(n);
+            float[] c = points.coords(), nrm = points.normals(), light = points.lights();
+            for (int i = 0; i < n; i++) {
+                out.putFloats(c, 3 * i, 3);
+                out.putFloats(nrm, 3 * i, 3);
+                out.putFloat(light[i]);
+            }
+            out.putChecksum();
+        }
+    }
+
+    /** Same layout as the SurfacePointBuffer overload. */
+    public static void writePoints(Path file, TerrainSettings ts, long seed, List<SurfacePoint> points) throws IOException {
+        long size = headerSize(ts) + 8 + (long) points.size() * 7 * 4;
+
+        try (MappedOutput out = new MappedOutput(file, size)) {
+            writeHeader(out, KIND_POINTS, seed, ts);
+            out.putLong(points.size());
+            for (SurfacePoint sp : points) {
+                out.putFloat((float) sp.pos.x);
+                out.putFloat((float) sp.pos.y);
+                out.putFloat((float) sp.pos.z);
+                out.putFloat((float) sp.normal.x);
+                out.putFloat((float) sp.normal.y);
+                out.putFloat((float) sp.normal.z);
+                out.putFloat((float) sp.light);
+            }
+            out.putChecksum();
+        }
+    }
+
+    public static void writeMesh(Path file, TerrainSettings ts, long seed, TerrainMesh mesh) throws IOException {
+        long size = headerSize(ts) + 4 * 4 + 2 * 8
+                + (long) mesh.vertices.length * 4 * 2
+                + (long) mesh.indices.length * 4;
+
+        try (MappedOutput out = new MappedOutput(file, size)) {
+            writeHeader(out, KIND_MESH, seed, ts);
+            out.putInt(mesh.vertexCount());
+            out.putInt(mesh.triangleCount());
+            out.putInt(mesh.cols);
+            out.putInt(mesh.rows);
+            out.putDouble(mesh.minY);
+            out.putDouble(mesh.maxY);
+            out.putFloats(mesh.vertices, 0, mesh.vertices.length);
+            out.putFloats(mesh.normals, 0, mesh.normals.length);
+            out.putInts(mesh.indices, 0, mesh.indices.length);
+            out.putChecksum();
+        }
+    }
+
+    public static void writePolylines(Path file, TerrainSettings ts, long seed, PolylineBuffer lines) throws IOException {
+        int n = lines.polylineCount();
+        int points = lines.pointCount();
+        int segments = points - n;
+        long size = headerSize(ts) + 8 + (long) (n + 1) * 4 + (long) points * 12 + (long) segments * 8;
+
+        try (MappedOutput out = new MappedOutput(file, size)) {
+            writeHeader(out, KIND_POLYLINES, seed, ts);
+            out.putInt(n);
+            out.putInt(points);
+            for (int i = 0; i < n; i++) out.putInt(lines.pointStart(i));
+            out.putInt(points);
+            out.putFloats(lines.coords(), 0, points * 3);
+            for (int k = 0; k < segments; k++) out.putFloat(lines.segmentSize(k));
+            for (int k = 0; k < segments; k++) out.putInt(lines.segmentColor(k));
+            out.putChecksum();
+        }
+    }
+
+    // ===== Native format: read =====
+
+    public static TerrainFile read(Path file) throws IOException {
+        try (MappedInput in = new MappedInput(file)) {
+            if (in.getInt() != MAGIC) throw new IOException(file + ": not a terrain file");
+            int version = in.getInt();
+            if (version < 1 || version > VERSION) throw new IOException(file + ": unsupported version " + version);
+
+            int kind = in.getInt();
+            long seed = in.getLong();
+            TerrainSettings ts = (in.getByte() != 0) ? readSettings(in, version) : null;
+            TerrainFile f = new TerrainFile(kind, seed, ts);
+
+            switch (kind) {
+                case KIND_HEIGHTMAP -> {
+                    int gx = count(file, in.getInt(), "column");
+                    int gz = count(file, in.getInt(), "row");
+                    boolean f32 = ts != null && ts.floatPrecision;
+                    int samples = count(file, (long) gx * gz, "sample");
+                    checkPayload(file, in, version, (long) samples * (f32 ? 4 : 8));
+                    f.heights = new Heightmap(gx, gz);
+                    if (f32) {
+                        float[] row = new float[gx];
+                        for (int z = 0; z < gz; z++) {
+                            in.getFloats(row, 0, gx);
+                            for (int x = 0; x < gx; x++) f.heights.data[z * gx + x] = row[x];
+                        }
+                    } else {
+                        in.getDoubles(f.heights.data, 0, f.heights.data.length);
+                    }
+                }
+                case KIND_POINTS -> {
+                    int n = count(file, in.getLong(), "point");
+                    checkPayload(file, in, version, (long) n * 7 * 4);
+                    f.points = new ArrayList<>(n);
+                    for (int i = 0; i < n; i++) {
+                        Vector3 pos = new Vector3(in.getFloat(), in.getFloat(), in.getFloat());
+                        Vector3 nrm = new Vector3(in.getFloat(), in.getFloat(), in.getFloat());
+                        f.points.add(new SurfacePoint(pos, nrm, in.getFloat()));
+                    }
+                }
+                case KIND_MESH -> {
+                    int vc = count(file, in.getInt(), "vertex");
+                    int tc = count(file, in.getInt(), "triangle");
+                    int cols = in.getInt();
+                    int rows = in.getInt();
+                    double minY = in.getDouble();
+                    double maxY = in.getDouble();
+                    int coords = count(file, vc * 3L, "vertex coordinate");
+                    int corners = count(file, tc * 3L, "triangle index");
+                    checkPayload(file, in, version, coords * 4L * 2 + corners * 4L);
+                    float[] vertices = new float[coords];
+                    float[] normals = new float[coords];
+                    int[] indices = new int[corners];
+                    in.getFloats(vertices, 0, vertices.length);
+                    in.getFloats(normals, 0, normals.length);
+                    in.getInts(indices, 0, indices.length);
+                    f.mesh = new TerrainMesh(vertices, normals, indices, cols, rows, minY, maxY);
+                }
+                case KIND_POLYLINES -> {
+                    int n = count(file, in.getInt(), "polyline");
+                    int points = count(file, in.getInt(), "point");
+                    if (points < n) throw new IOException(file + ": " + points + " points for " + n + " polylines");
+                    int coords = count(file, points * 3L, "point coordinate");
+                    int segments = points - n;
+                    checkPayload(file, in, version, (n + 1L) * 4 + coords * 4L + segments * 8L);
+                    int[] starts = new int[n + 1];
+                    float[] xyz = new float[coords];
+                    float[] sizes = new float[segments];
+                    int[] colors = new int[segments];
+                    in.getInts(starts, 0, starts.length);
+                    if (starts[0] != 0 || starts[n] != points) throw new IOException(file + ": bad polyline starts");
+                    for (int i = 0; i < n; i++) {
+                        if (starts[i + 1] <= starts[i]) throw new IOException(file + ": bad polyline starts");
+                    }
+                    in.getFloats(xyz, 0, xyz.length);
+                    in.getFloats(sizes, 0, sizes.length);
+                    in.getInts(colors, 0, colors.length);
+                    f.polylines = new PolylineBatch(xyz, starts, sizes, colors, new WormSettings());
+                }
+                default -> throw new IOException(file + ": unknown kind " + kind);
+            }
+            if (version >= 2 && !in.checksumMatches()) throw new IOException(file + ": checksum mismatch");
+            return f;
+        }
+    }
+
+    /** A header count, rejected if negative or too large for a Java array. */
+    private static int count(Path file, long n, String what) throws IOException {
+        if (n < 0 || n > Integer.MAX_VALUE - 8) throw new IOException(file + ": bad " + what + " count " + n);
+        return (int) n;
+    }
+
+    /** Fails before allocating if the header promises more payload than the file holds. */
+    private static void checkPayload(Path file, MappedInput in, int version, long bytes) throws IOException {
+        long left = in.remaining() - (version >= 2 ? TRAILER_BYTES : 0);
+        if (bytes > left) throw new IOException(file + ": header needs " + bytes + " payload bytes, file has " + left);
+    }
+
+    // ===== PLY / STL =====
+
+    /** Binary little-endian PLY with float position + normal per vertex. */
+    public static void writePly(Path file, TerrainMesh mesh) throws IOException {
+        byte[] header = ("ply\n"
+                + "format binary_little_endian 1.0\n"
+                + "comment 3D-terrain-generator\n"
+                + "element vertex " + mesh.vertexCount() + "\n"
+                + "property float x\nproperty float y\nproperty float z\n"
+                + "property float nx\nproperty float ny\nproperty float nz\n"
+                + "element face " + mesh.triangleCount() + "\n"
+                + "property list uchar int vertex_indices\n"
+                + "end_header\n").getBytes(StandardCharsets.US_ASCII);
+        long size = header.length + (long) mesh.vertexCount() * 24 + (long) mesh.triangleCount() * 13;
+
+        try (MappedOutput out = new MappedOutput(file, size)) {
+            out.putBytes(header);
+            float[] v = mesh.vertices, n = mesh.normals;
+            for (int i = 0; i < mesh.vertexCount(); i++) {
+                out.putFloats(v, 3 * i, 3);
+                out.putFloats(n, 3 * i, 3);
+            }
+            int[] idx = mesh.indices;
+            for (int t = 0; t < mesh.triangleCount(); t++) {
+                out.putByte((byte) 3);
+                out.putInts(idx, 3 * t, 3);
+            }
+        }
+    }
+
+    /** Binary STL; facet normals are recomputed from the triangle winding. */
+    public static void writeStl(Path file, TerrainMesh mesh) throws IOException {
+        long size = 80 + 4 + (long) mesh.triangleCount() * 50;
+
+        try (MappedOutput out = new MappedOutput(file, size)) {
+            byte[] header = new byte[80];
+            byte[] label = "3D-terrain-generator".getBytes(StandardCharsets.US_ASCII);
+            System.arraycopy(label, 0, header, 0, label.length);
+            out.putBytes(header);
+            out.putInt(mesh.triangleCount());
+
+            float[] v = mesh.vertices;
+            int[] idx = mesh.indices;
+            for (int t = 0; t < mesh.triangleCount(); t++) {
+                int a = 3 * idx[3 * t], b = 3 * idx[3 * t + 1], c = 3 * idx[3 * t + 2];
+                double ux = v[b] - v[a], uy = v[b + 1] - v[a + 1], uz = v[b + 2] - v[a + 2];
+                double wx = v[c] - v[a], wy = v[c + 1] - v[a + 1], wz = v[c + 2] - v[a + 2];
+                double nx = uy * wz - uz * wy, ny = uz * wx - ux * wz, nz = ux * wy - uy * wx;
+                double len = Math.sqrt(nx * nx + ny * ny + nz * nz);
+                if (len < 1e-12) len = 1;
+                out.putFloat((float) (nx / len));
+                out.putFloat((float) (ny / len));
+                out.putFloat((float) (nz / len));
+                out.putFloats(v, a, 3);
+                out.putFloats(v, b, 3);
+                out.putFloats(v, c, 3);
+                out.putShort((short) 0);
+            }
+        }
+    }
+
+    // ===== Header =====
+
+    private static long headerSize(TerrainSettings ts) {
+        return HEADER_BYTES + (ts != null ? SETTINGS_BYTES : 0) + TRAILER_BYTES;
+    }
+
+    private static void writeHeader(MappedOutput out, int kind, long seed, TerrainSettings ts) throws IOException {
+        out.putInt(MAGIC);
+        out.putInt(VERSION);
+        out.putInt(kind);
+        out.putLong(seed);
+        out.putByte((byte) (ts != null ? 1 : 0));
+        if (ts == null) return;
+
+        out.putInt(ts.gridX);
+        out.putInt(ts.gridZ);
+        out.putDouble(ts.spacing);
+        out.putLong(ts.seed);
+        out.putDouble(ts.noiseScale);
+        out.putDouble(ts.amplitude);
+        out.putInt(ts.octaves);
+        out.putDouble(ts.persistence);
+        out.putDouble(ts.lacunarity);
+        out.putByte((byte) (ts.ridgedMountains ? 1 : 0));
+        out.putByte((byte) (ts.valleys ? 1 : 0));
+        out.putDouble(ts.sharpness);
+        out.putByte((byte) (ts.drawRows ? 1 : 0));
+        out.putByte((byte) (ts.drawCols ? 1 : 0));
+        out.putDouble(ts.strokeMin);
+        out.putDouble(ts.strokeMax);
+        out.putByte((byte) (ts.floatPrecision ? 1 : 0));
+    }
+
+    private static TerrainSettings readSettings(MappedInput in, int version) throws IOException {
+        TerrainSettings ts = new TerrainSettings();
+        ts.gridX = in.getInt();
+        ts.gridZ = in.getInt();
+        ts.spacing = in.getDouble();
+        ts.seed = in.getLong();
+        ts.noiseScale = in.getDouble();
+        ts.amplitude = in.getDouble();
+        ts.octaves = in.getInt();
+        ts.persistence = in.getDouble();
+        ts.lacunarity = in.getDouble();
+        ts.ridgedMountains = in.getByte() != 0;
+        ts.valleys = in.getByte() != 0;
+        ts.sharpness = in.getDouble();
+        ts.drawRows = in.getByte() != 0;
+        ts.drawCols = in.getByte() != 0;
+        ts.strokeMin = in.getDouble();
+        ts.strokeMax = in.getDouble();
+        if (version >= 3) ts.floatPrecision = in.getByte() != 0;
+        return ts;
+    }
+
+    // ===== Windowed memory mapping =====
+
+    /** Sequential little-endian writer over a file of known size. */
+    static final class MappedOutput implements AutoCloseable {
+        private final FileChannel ch;
+        private final long size;
+        private final CRC32C crc = new CRC32C();
+        private MappedByteBuffer buf;
+        private long bufStart;
+        private int crcPos;            // bytes of buf already folded into crc
+
+        MappedOutput(Path file, long size) throws IOException {
+            this.ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.size = size;
+            map(0);
+        }
+
+        private void map(long pos) throws IOException {
+            if (buf != null) {
+                foldCrc();
+                buf.force();
+            }
+            long len = Math.min(WINDOW, size - pos);
+            buf = ch.map(FileChannel.MapMode.READ_WRITE, pos, len);
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            bufStart = pos;
+            crcPos = 0;
+        }
+
+        private void foldCrc() {
+            crc.update(buf.duplicate().position(crcPos).limit(buf.position()));
+            crcPos = buf.position();
+        }
+
+        private void need(int bytes) throws IOException {
+            if (buf.remaining() < bytes) map(bufStart + buf.position());
+        }
+
+        /** Appends the CRC32C of everything written so far. */
+        void putChecksum() throws IOException {
+            need(4);
+            foldCrc();
+            buf.putInt((int) crc.getValue());
+        }
+
+        void putByte(byte v) throws IOException { need(1); buf.put(v); }
+        void putShort(short v) throws IOException { need(2); buf.putShort(v); }
+        void putInt(int v) throws IOException { need(4); buf.putInt(v); }
+        void putLong(long v) throws IOException { need(8); buf.putLong(v); }
+        void putFloat(float v) throws IOException { need(4); buf.putFloat(v); }
+        void putDouble(double v) throws IOException { need(8); buf.putDouble(v); }
+
+        void putBytes(byte[] a) throws IOException {
+            int off = 0;
+            while (off < a.length) {
+                need(1);
+                int n = Math.min(a.length - off, buf.remaining());
+                buf.put(a, off, n);
+                off += n;
+            }
+        }
+
+        void putFloats(float[] a, int off, int len) throws IOException {
+            int end = off + len;
+            while (off < end) {
+                need(4);
+                int n = Math.min(end - off, buf.remaining() / 4);
+                buf.asFloatBuffer().put(a, off, n);
+                buf.position(buf.position() + n * 4);
+                off += n;
+            }
+        }
+
+        void putInts(int[] a, int off, int len) throws IOException {
+            int end = off + len;
+            while (off < end) {
+                need(4);
+                int n = Math.min(end - off, buf.remaining() / 4);
+                buf.asIntBuffer().put(a, off, n);
+                buf.position(buf.position() + n * 4);
+                off += n;
+            }
+        }
+
+        void putDoubles(double[] a, int off, int len) throws IOException {
+            int end = off + len;
+            while (off < end) {
+                need(8);
+                int n = Math.min(end - off, buf.remaining() / 8);
+                buf.asDoubleBuffer().put(a, off, n);
+                buf.position(buf.position() + n * 8);
+                off += n;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (buf != null) buf.force();
+            } finally {
+                ch.close();
+            }
+        }
+    }
+
+    /** Sequential little-endian reader, same windowing as {@link MappedOutput}. */
+    static final class MappedInput implements AutoCloseable {
+        private final FileChannel ch;
+        private final long size;
+        private final CRC32C crc = new CRC32C();
+        private MappedByteBuffer buf;
+        private long bufStart;
+        private int crcPos;
+
+        MappedInput(Path file) throws IOException {
+            this.ch = FileChannel.open(file, StandardOpenOption.READ);
+            this.size = ch.size();
+            map(0);
+        }
+
+        private void map(long pos) throws IOException {
+            if (buf != null) foldCrc();
+            long len = Math.min(WINDOW, size - pos);
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, pos, len);
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            bufStart = pos;
+            crcPos = 0;
+        }
+
+        private void foldCrc() {
+            crc.update(buf.duplicate().position(crcPos).limit(buf.position()));
+            crcPos = buf.position();
+        }
+
+        /** Reads the CRC32C trailer and compares it with everything read so far; also rejects trailing bytes. */
+        boolean checksumMatches() throws IOException {
+            need(4);
+            foldCrc();
+            int stored = buf.getInt();
+            return stored == (int) crc.getValue() && bufStart + buf.position() == size;
+        }
+
+        private void need(int bytes) throws IOException {
+            if (buf.remaining() >= bytes) return;
+            long pos = bufStart + buf.position();
+            if (size - pos < bytes) throw new IOException("unexpected end of file");
+            map(pos);
+        }
+
+        long remaining() {
+            return size - (bufStart + buf.position());
+        }
+
+        byte getByte() throws IOException { need(1); return buf.get(); }
+        int getInt() throws IOException { need(4); return buf.getInt(); }
+        long getLong() throws IOException { need(8); return buf.getLong(); }
+        float getFloat() throws IOException { need(4); return buf.getFloat(); }
+        double getDouble() throws IOException { need(8); return buf.getDouble(); }
+
+        void getFloats(float[] a, int off, int len) throws IOException {
+            int end = off + len;
+            while (off < end) {
+                need(4);
+                int n = Math.min(end - off, buf.remaining() / 4);
+                buf.asFloatBuffer().get(a, off, n);
+                buf.position(buf.position() + n * 4);
+                off += n;
+            }
+        }
+
+        void getInts(int[] a, int off, int len) throws IOException {
+            int end = off + len;
+            while (off < end) {
+                need(4);
+                int n = Math.min(end - off, buf.remaining() / 4);
+                buf.asIntBuffer().get(a, off, n);
+                buf.position(buf.position() + n * 4);
+                off += n;
+            }
+        }
+
+        void getDoubles(double[] a, int off, int len) throws IOException {
+            int end = off + len;
+            while (off < end) {
+                need(8);
+                int n = Math.min(end - off, buf.remaining() / 8);
+                buf.asDoubleBuffer().get(a, off, n);
+                buf.position(buf.position() + n * 8);
+                off += n;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            ch.close();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * Indexed triangle mesh: shared vertices, per-vertex unit normals and 3 indices
+ * per triangle (counter-clockwise seen from the normal side).
+ *
+ * Meshes built from a heightmap also record their vertex grid (cols x rows,
+ * row-major), which lets the wireframe be derived without storing it.
+ */
+public final class TerrainMesh {
+    public final float[] vertices;   // x,y,z per vertex
+    public final float[] normals;    // x,y,z per vertex
+    public final int[] indices;      // 3 per triangle
+
+    public final int cols, rows;     // vertex grid, 0 when not grid based
+    public final double minY, maxY;  // height range used for colouring
+
+    public TerrainMesh(float[] vertices, float[] normals, int[] indices,
+                       int cols, int rows, double minY, double maxY) {
+        this.vertices = vertices;
+        this.normals = normals;
+        this.indices = indices;
+        this.cols = cols;
+        this.rows = rows;
+        this.minY = minY;
+        this.maxY = (Math.abs(maxY - minY) < 1e-9) ? minY + 1.0 : maxY;
+    }
+
+    public int vertexCount() {
+        return vertices.length / 3;
+    }
+
+    public int triangleCount() {
+        return indices.length / 3;
+    }
+
+    /**
+     * Row / column polylines through the vertex grid, coloured by height like
+     * {@link TerrainPolylineGenerator}. Built on demand; the mesh keeps no copy.
+     */
+    public PolylineBatch toWireframe(WormSettings style, boolean drawRows, boolean drawCols) {
+        if (cols == 0 || rows == 0) {
+            throw new IllegalStateException("wireframe needs a grid based mesh");
+        }
+        int lines = (drawRows ? rows : 0) + (drawCols ? cols : 0);
+        PolylineBatch batch = new PolylineBatch(lines == 0 ? 0 : 2 * cols * rows, lines);
+
+        if (drawRows) {
+            for (int r = 0; r < rows; r++) {
+                batch.startPolyline(style);
+                for (int c = 0; c < cols; c++) {
+                    addVertex(batch, c == 0, r * cols + c - 1, r * cols + c);
+                }
+                batch.endPolyline();
+            }
+        }
+
+        if (drawCols) {
+            for (int c = 0; c < cols; c++) {
+                batch.startPolyline(style);
+                for (int r = 0; r < rows; r++) {
+                    addVertex(batch, r == 0, (r - 1) * cols + c, r * cols + c);
+                }
+                batch.endPolyline();
+            }
+        }
+
+        batch.trim();
+        return batch;
+    }
+
+    private void addVertex(PolylineBatch batch, boolean first, int prev, int v) {
+        float x = vertices[3 * v], y = vertices[3 * v + 1], z = vertices[3 * v + 2];
+        if (first) {
+            batch.addPoint(x, y, z);
+            return;
+        }
+        double dx = x - vertices[3 * prev];
+        double dy = y - vertices[3 * prev + 1];
+        double dz = z - vertices[3 * prev + 2];
+        double size = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        int argb = TerrainPolylineGenerator.heightToRGB(0.5 * (vertices[3 * prev + 1] + y), minY, maxY);
+        batch.addPoint(x, y, z, size, argb);
+    }
+}
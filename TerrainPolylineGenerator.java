@@ -40,6 +40,11 @@ public class TerrainPolylineGenerator implements PathGenerator, SegmentColorProv
     }
 
     private Color colorFromHeight(double y) {
+        return new Color(heightToRGB(y, minH, maxH));
+    }
+
+    /** Height colour ramp shared with the packed terrain path; maxH must be > minH. */
+    static int heightToRGB(double y, double minH, double maxH) {
         double t = (y - minH) / (maxH - minH);
         if (t < 0) t = 0;
         if (t > 1) t = 1;
@@ -51,7 +56,7 @@ public class TerrainPolylineGenerator implements PathGenerator, SegmentColorProv
         // make low areas slightly darker, peaks brighter
         float bri = (float) (0.55 + 0.45 * t);
 
-        return Color.getHSBColor(hue, sat, bri);
+        return Color.HSBtoRGB(hue, sat, bri);
     }
 
     @Override public void generate() { /* no-op */ }
@@ -24,4 +24,9 @@ public class TerrainSettings {
     // Stroke mapping
     public double strokeMin = 0.6;
     public double strokeMax = 2.5;
+
+    // Storage: heightmaps rounded to float and written with 4-byte samples, so
+    // exports and HeightmapCache entries take half the space on disk. Heightmaps
+    // in memory stay double[] (they only live until the float mesh is built).
+    public boolean floatPrecision = false;
 }
@@ -0,0 +1,329 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * CPU rasterizer for {@link TerrainMesh}: integer edge functions on a 1/16 px
+ * grid, a float z-buffer and flat or Gouraud shading from the normals, coloured
+ * by height like the wireframe. Writes straight into the int raster of a
+ * TYPE_INT_RGB or TYPE_INT_ARGB image.
+ *
+ * Triangles are binned into TILE x TILE screen tiles in triangle order, then the
+ * tiles are rasterized in parallel. A pixel belongs to exactly one tile, so the
+ * depth buffer needs no locking, and the image does not depend on the thread
+ * count. An instance keeps its buffers between frames and is not thread-safe.
+ */
+public final class TriangleRasterizer {
+
+    public enum Shading { FLAT, GOURAUD }
+
+    /** Bulk vertex transform into screen space. */
+    public interface Projection {
+        /**
+         * Writes screen x, y and inverse depth for vertices [from, to) of xyz.
+         * invZ must be linear in screen space and larger when nearer; a vertex
+         * with invZ <= 0 is clipped, and so is every triangle using it.
+         */
+        void project(float[] xyz, int from, int to, float[] sx, float[] sy, float[] invZ);
+    }
+
+    public Shading shading = Shading.GOURAUD;
+    public double ambient = 0.3;
+    public double lightX = -0.4, lightY = 0.8, lightZ = 0.45;   // towards the light; lit on both sides
+
+    private static final int TILE = 64;
+    private static final int SUB = 16;                 // subpixel steps per pixel
+    private static final float GUARD = 1 << 20;        // triangles reaching past this many px are dropped
+    private static final int VERTEX_BLOCK = 4096;
+    private static final int TRIANGLE_BLOCK = 8192;
+    private static final float VISIBLE_BIAS = 0.01f;  // relative inverse-depth slack in isVisible
+
+    private int[] pixels;
+    private float[] zbuf = new float[0];   // inverse depth, 0 = empty
+    private int width, height, tilesX, tilesY;
+
+    private float[] sx = new float[0], sy = new float[0], invZ = new float[0];
+    private int[] vertexRgb = new int[0];
+    private int[] blockCounts = new int[0];
+    private int[] tileStarts = new int[0];
+    private int[] bins = new int[0];
+
+    /** Targets img and clears the depth buffer; pixels keep their current contents. */
+    public void beginFrame(BufferedImage img) {
+        if (!(img.getRaster().getDataBuffer() instanceof DataBufferInt db)) {
+            throw new IllegalArgumentException("needs an int raster image, got type " + img.getType());
+        }
+        pixels = db.getData();
+        width = img.getWidth();
+        height = img.getHeight();
+        tilesX = (width + TILE - 1) / TILE;
+        tilesY = (height + TILE - 1) / TILE;
+        if (zbuf.length < width * height) zbuf = new float[width * height];
+        Arrays.fill(zbuf, 0, width * height, 0f);
+    }
+
+    /** One mesh into a fresh frame. */
+    public void render(BufferedImage img, TerrainMesh mesh, Projection projection, ForkJoinPool pool) {
+        beginFrame(img);
+        draw(mesh, projection, pool);
+    }
+
+    /** Draws mesh into the current frame, depth-tested against what was drawn since beginFrame. */
+    public void draw(TerrainMesh mesh, Projection projection, ForkJoinPool pool) {
+        int nv = mesh.vertexCount();
+        int nt = mesh.triangleCount();
+        if (nt == 0 || width == 0 || height == 0) return;
+
+        // 1) Project and light every vertex once
+        if (sx.length < nv) {
+            sx = new float[nv];
+            sy = new float[nv];
+            invZ = new float[nv];
+            vertexRgb = new int[nv];
+        }
+        double len = Math.sqrt(lightX * lightX + lightY * lightY + lightZ * lightZ);
+        float lx = (float) (lightX / len), ly = (float) (lightY / len), lz = (float) (lightZ / len);
+        int vBlocks = (nv + VERTEX_BLOCK - 1) / VERTEX_BLOCK;
+        Parallel.forRange(pool, vBlocks, 1, (b0, b1) -> {
+            int from = b0 * VERTEX_BLOCK, to = Math.min(nv, b1 * VERTEX_BLOCK);
+            projection.project(mesh.vertices, from, to, sx, sy, invZ);
+            if (shading == Shading.GOURAUD) {
+                float[] n = mesh.normals;
+                for (int i = from; i < to; i++) {
+                    float d = n[3 * i] * lx + n[3 * i + 1] * ly + n[3 * i + 2] * lz;
+                    vertexRgb[i] = shade(mesh, mesh.vertices[3 * i + 1], d);
+                }
+            }
+        });
+
+        // 2) Bin triangles: count per (block, tile), prefix sum, then fill in triangle order
+        int tiles = tilesX * tilesY;
+        int tBlocks = (nt + TRIANGLE_BLOCK - 1) / TRIANGLE_BLOCK;
+        if (blockCounts.length < tBlocks * tiles) blockCounts = new int[tBlocks * tiles];
+        Arrays.fill(blockCounts, 0, tBlocks * tiles, 0);
+        int[] tri = mesh.indices;
+
+        Parallel.forRange(pool, tBlocks, 1, (b0, b1) -> {
+            for (int b = b0; b < b1; b++) {
+                int base = b * tiles;
+                int[] box = new int[4];
+                for (int t = b * TRIANGLE_BLOCK, end = Math.min(nt, t + TRIANGLE_BLOCK); t < end; t++) {
+                    if (!tileBox(tri, t, box)) continue;
+                    for (int ty = box[1]; ty <= box[3]; ty++) {
+                        for (int tx = box[0]; tx <= box[2]; tx++) blockCounts[base + ty * tilesX + tx]++;
+                    }
+                }
+            }
+        });
+
+        if (tileStarts.length < tiles + 1) tileStarts = new int[tiles + 1];
+        int total = 0;
+        for (int t = 0; t < tiles; t++) {
+            tileStarts[t] = total;
+            for (int b = 0; b < tBlocks; b++) {
+                int c = blockCounts[b * tiles + t];
+                blockCounts[b * tiles + t] = total;   // becomes this block's write offset in tile t
+                total += c;
+            }
+        }
+        tileStarts[tiles] = total;
+        if (bins.length < total) bins = new int[total];
+
+        Parallel.forRange(pool, tBlocks, 1, (b0, b1) -> {
+            for (int b = b0; b < b1; b++) {
+                int base = b * tiles;
+                int[] box = new int[4];
+                for (int t = b * TRIANGLE_BLOCK, end = Math.min(nt, t + TRIANGLE_BLOCK); t < end; t++) {
+                    if (!tileBox(tri, t, box)) continue;
+                    for (int ty = box[1]; ty <= box[3]; ty++) {
+                        for (int tx = box[0]; tx <= box[2]; tx++) bins[blockCounts[base + ty * tilesX + tx]++] = t;
+                    }
+                }
+            }
+        });
+
+        // 3) Rasterize tiles in parallel
+        Parallel.forRange(pool, tiles, 1, (t0, t1) -> {
+            for (int t = t0; t < t1; t++) {
+                int px0 = (t % tilesX) * TILE, py0 = (t / tilesX) * TILE;
+                int px1 = Math.min(width, px0 + TILE) - 1, py1 = Math.min(height, py0 + TILE) - 1;
+                for (int i = tileStarts[t]; i < tileStarts[t + 1]; i++) {
+                    rasterize(mesh, bins[i], px0, py0, px1, py1, lx, ly, lz);
+                }
+            }
+        });
+    }
+
+    /**
+     * Whether a point at pixel (x, y) with inverse depth invZ is on or in front of
+     * the surfaces drawn since beginFrame, for depth-testing overlays such as a
+     * wireframe. It is compared with the farthest surface in the 3x3 pixels around
+     * it, plus VISIBLE_BIAS, so lines lying on a surface stay visible. Points off
+     * the image count as visible.
+     */
+    public boolean isVisible(int x, int y, float invZ) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return true;
+        float far = Float.MAX_VALUE;
+        for (int py = Math.max(0, y - 1), py1 = Math.min(height - 1, y + 1); py <= py1; py++) {
+            for (int px = Math.max(0, x - 1), px1 = Math.min(width - 1, x + 1); px <= px1; px++) {
+                far = Math.min(far, zbuf[py * width + px]);
+            }
+        }
+        return invZ * (1 + VISIBLE_BIAS) >= far;
+    }
+
+    /** Tile range {tx0, ty0, tx1, ty1} of triangle t's screen bounds; false when it is clipped or off screen. */
+    private boolean tileBox(int[] tri, int t, int[] box) {
+        int a = tri[3 * t], b = tri[3 * t + 1], c = tri[3 * t + 2];
+        if (!(invZ[a] > 0 && invZ[b] > 0 && invZ[c] > 0)) return false;
+
+        float minX = Math.min(sx[a], Math.min(sx[b], sx[c])), maxX = Math.max(sx[a], Math.max(sx[b], sx[c]));
+        float minY = Math.min(sy[a], Math.min(sy[b], sy[c])), maxY = Math.max(sy[a], Math.max(sy[b], sy[c]));
+        if (!(maxX >= 0 && maxY >= 0 && minX < width && minY < height)) return false;   // also rejects NaN
+        if (minX < -GUARD || minY < -GUARD || maxX > GUARD || maxY > GUARD) return false;
+
+        box[0] = Math.max(0, (int) minX / TILE);
+        box[1] = Math.max(0, (int) minY / TILE);
+        box[2] = Math.min(tilesX - 1, (int) maxX / TILE);
+        box[3] = Math.min(tilesY - 1, (int) maxY / TILE);
+        return true;
+    }
+
+    private void rasterize(TerrainMesh mesh, int t, int px0, int py0, int px1, int py1,
+                           float lx, float ly, float lz) {
+        int[] tri = mesh.indices;
+        int a = tri[3 * t], b = tri[3 * t + 1], c = tri[3 * t + 2];
+
+        long xa = Math.round(sx[a] * SUB), ya = Math.round(sy[a] * SUB);
+        long xb = Math.round(sx[b] * SUB), yb = Math.round(sy[b] * SUB);
+        long xc = Math.round(sx[c] * SUB), yc = Math.round(sy[c] * SUB);
+
+        long area = (xb - xa) * (yc - ya) - (yb - ya) * (xc - xa);
+        if (area == 0) return;
+        if (area < 0) {   // make the winding positive so inside means all edge functions >= 0
+            int ti = b; b = c; c = ti;
+            long tx = xb; xb = xc; xc = tx;
+            long ty = yb; yb = yc; yc = ty;
+            area = -area;
+        }
+
+        int minX = Math.max(px0, (int) Math.floorDiv(Math.min(xa, Math.min(xb, xc)), SUB));
+        int maxX = Math.min(px1, (int) Math.floorDiv(Math.max(xa, Math.max(xb, xc)), SUB));
+        int minY = Math.max(py0, (int) Math.floorDiv(Math.min(ya, Math.min(yb, yc)), SUB));
+        int maxY = Math.min(py1, (int) Math.floorDiv(Math.max(ya, Math.max(yb, yc)), SUB));
+        if (minX > maxX || minY > maxY) return;
+
+        // Edge function of v -> w at pixel centre p, opposite the third vertex; one bias unit
+        // keeps pixels exactly on a shared edge in only one of the two triangles
+        long cx = (long) minX * SUB + SUB / 2, cy = (long) minY * SUB + SUB / 2;
+        long e0 = edge(xb, yb, xc, yc, cx, cy), e1 = edge(xc, yc, xa, ya, cx, cy), e2 = edge(xa, ya, xb, yb, cx, cy);
+        long dx0 = (yb - yc) * SUB, dx1 = (yc - ya) * SUB, dx2 = (ya - yb) * SUB;
+        long dy0 = (xc - xb) * SUB, dy1 = (xa - xc) * SUB, dy2 = (xb - xa) * SUB;
+        e0 += bias(dx0, dy0);
+        e1 += bias(dx1, dy1);
+        e2 += bias(dx2, dy2);
+
+        float inv = 1f / area;
+        float za = invZ[a], zb = invZ[b], zc = invZ[c];
+
+        int rgbA, rgbB, rgbC;
+        if (shading == Shading.FLAT) {
+            rgbA = rgbB = rgbC = flatColor(mesh, a, b, c, lx, ly, lz);
+        } else {
+            rgbA = vertexRgb[a];
+            rgbB = vertexRgb[b];
+            rgbC = vertexRgb[c];
+        }
+        boolean uniform = rgbA == rgbB && rgbB == rgbC;
+
+        for (int y = minY; y <= maxY; y++) {
+            long w0 = e0, w1 = e1, w2 = e2;
+            int row = y * width;
+            for (int x = minX; x <= maxX; x++) {
+                if ((w0 | w1 | w2) >= 0) {
+                    float l0 = w0 * inv, l1 = w1 * inv, l2 = 1f - l0 - l1;
+                    float z = l0 * za + l1 * zb + l2 * zc;
+                    int idx = row + x;
+                    if (z > zbuf[idx]) {
+                        zbuf[idx] = z;
+                        pixels[idx] = 0xFF000000 | (uniform ? rgbA : lerpRgb(rgbA, rgbB, rgbC, l0, l1, l2));
+                    }
+                }
+                w0 += dx0;
+                w1 += dx1;
+                w2 += dx2;
+            }
+            e0 += dy0;
+            e1 += dy1;
+            e2 += dy2;
+        }
+    }
+
+    private static long edge(long vx, long vy, long wx, long wy, long px, long py) {
+        return (wx - vx) * (py - vy) - (wy - vy) * (px - vx);
+    }
+
+    // Top-left style tie break: 0 for edges whose gradient points right (or down when vertical), else -1
+    private static long bias(long dx, long dy) {
+        return (dx > 0 || (dx == 0 && dy > 0)) ? 0 : -1;
+    }
+
+    private int flatColor(TerrainMesh mesh, int a, int b, int c, float lx, float ly, float lz) {
+        float[] v = mesh.vertices;
+        float ux = v[3 * b] - v[3 * a], uy = v[3 * b + 1] - v[3 * a + 1], uz = v[3 * b + 2] - v[3 * a + 2];
+        float wx = v[3 * c] - v[3 * a], wy = v[3 * c + 1] - v[3 * a + 1], wz = v[3 * c + 2] - v[3 * a + 2];
+        float nx = uy * wz - uz * wy, ny = uz * wx - ux * wz, nz = ux * wy - uy * wx;
+        float len = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+        float d = (len > 0) ? (nx * lx + ny * ly + nz * lz) / len : 1f;
+        float y = (v[3 * a + 1] + v[3 * b + 1] + v[3 * c + 1]) / 3f;
+        return shade(mesh, y, d);
+    }
+
+    /** Height colour scaled by ambient + diffuse, with d the cosine to the light (either side). */
+    private int shade(TerrainMesh mesh, double y, float d) {
+        double k = ambient + (1 - ambient) * Math.min(1f, Math.abs(d));
+        int rgb = TerrainPolylineGenerator.heightToRGB(y, mesh.minY, mesh.maxY);
+        int r = (int) (((rgb >> 16) & 0xFF) * k), g = (int) (((rgb >> 8) & 0xFF) * k), bl = (int) ((rgb & 0xFF) * k);
+        return (r << 16) | (g << 8) | bl;
+    }
+
+    private static int lerpRgb(int a, int b, int c, float la, float lb, float lc) {
+        int r = (int) (((a >> 16) & 0xFF) * la + ((b >> 16) & 0xFF) * lb + ((c >> 16) & 0xFF) * lc + 0.5f);
+        int g = (int) (((a >> 8) & 0xFF) * la + ((b >> 8) & 0xFF) * lb + ((c >> 8) & 0xFF) * lc + 0.5f);
+        int bl = (int) ((a & 0xFF) * la + (b & 0xFF) * lb + (c & 0xFF) * lc + 0.5f);
+        r = Math.max(0, Math.min(255, r));
+        g = Math.max(0, Math.min(255, g));
+        bl = Math.max(0, Math.min(255, bl));
+        return (r << 16) | (g << 8) | bl;
+    }
+
+    // ===== Projections =====
+
+    /**
+     * Pinhole camera at eye looking at target (y up) with vertical field of view
+     * fovY radians, for a width x height image. Vertices closer than 0.1 are clipped.
+     */
+    public static Projection lookAt(Vector3 eye, Vector3 target, double fovY, int width, int height) {
+        Vector3 forward = target.subtract(eye).normalize();
+        Vector3 right = forward.cross(new Vector3(0, 1, 0)).normalize();
+        Vector3 up = right.cross(forward);
+        double f = (height / 2.0) / Math.tan(fovY / 2);
+        double cx = width / 2.0, cy = height / 2.0;
+
+        return (xyz, from, to, sx, sy, invZ) -> {
+            for (int i = from; i < to; i++) {
+                double rx = xyz[3 * i] - eye.x, ry = xyz[3 * i + 1] - eye.y, rz = xyz[3 * i + 2] - eye.z;
+                double zCam = rx * forward.x + ry * forward.y + rz * forward.z;
+                if (zCam < 0.1) {
+                    invZ[i] = 0;
+                    continue;
+                }
+                double w = 1.0 / zCam;
+                sx[i] = (float) (cx + (rx * right.x + ry * right.y + rz * right.z) * f * w);
+                sy[i] = (float) (cy - (rx * up.x + ry * up.y + rz * up.z) * f * w);
+                invZ[i] = (float) w;
+            }
+        };
+    }
+}
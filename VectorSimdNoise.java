@@ -0,0 +1,199 @@
+import java.util.Arrays;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * jdk.incubator.vector implementation of {@link SimdNoise}; only loaded by
+ * {@link SimdNoise#INSTANCE} once the module is known to be present.
+ *
+ * Each lane runs the scalar arithmetic step for step (same operation order, no
+ * fused multiply-add), so results match the scalar kernels bit for bit. The
+ * lattice hash is the long-multiply mix of Noise.hash3 done lane-wise; x1*C is
+ * formed as x0*C + C to save the multiplies for the far corners.
+ */
+final class VectorSimdNoise implements SimdNoise {
+    private static final VectorSpecies<Double> D = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> L = LongVector.SPECIES_PREFERRED;
+
+    private static final long CX = 0x9E3779B97F4A7C15L;
+    private static final long CY = 0xC2B2AE3D27D4EB4FL;
+    private static final long CZ = 0x165667B19E3779F9L;
+    private static final double UNIT = 1.0 / (1L << 53);
+
+    VectorSimdNoise() {
+        if (D.length() != L.length()) throw new IllegalStateException("double/long lane counts differ");
+    }
+
+    @Override
+    public int lanes() {
+        return D.length();
+    }
+
+    // ===== Value noise =====
+    // Samples go through in blocks of BLOCK, each octave as a few short passes over
+    // scratch arrays (cell setup, the four x-edges, the final lerps). One big loop
+    // body defeats C2's inlining, and every vector that is not inlined gets boxed.
+
+    private static final int BLOCK = 256;
+
+    private static final class Scratch {
+        final double[] u = new double[BLOCK], v = new double[BLOCK], w = new double[BLOCK];
+        final long[] hx = new long[BLOCK], hy = new long[BLOCK], hz = new long[BLOCK];
+        final double[][] e = new double[4][BLOCK];
+    }
+
+    @Override
+    public void fbm3(double[] xs, double[] ys, double[] zs, double[] out, int n,
+                     double baseFreq, int octaves, double lacunarity, double gain, long seed) {
+        int bound = D.loopBound(n);
+        Scratch s = new Scratch();
+        for (int start = 0; start < bound; start += BLOCK) {
+            int len = Math.min(BLOCK, bound - start);
+            Arrays.fill(out, start, start + len, 0.0);
+
+            double amp = 1.0;
+            double freq = baseFreq;
+            for (int o = 0; o < octaves; o++) {
+                long seedO = seed + o * 1337L;
+                cells(xs, start, len, freq, s.u, s.hx, CX);
+                cells(ys, start, len, freq, s.v, s.hy, CY);
+                cells(zs, start, len, freq, s.w, s.hz, CZ);
+                for (int k = 0; k < 4; k++) {
+                    edges(s.hx, s.hy, s.hz, (k & 1) * CY, (k >> 1) * CZ, seedO, s.u, s.e[k], len);
+                }
+                accumulate3(out, start, len, s, amp);
+                amp *= gain;
+                freq *= lacunarity;
+            }
+        }
+        divide(out, bound, norm(octaves, gain));
+        for (int i = bound; i < n; i++) {
+            out[i] = Noise.fbm3(xs[i], ys[i], zs[i], baseFreq, octaves, lacunarity, gain, seed);
+        }
+    }
+
+    @Override
+    public void fbm2(double[] xs, double[] zs, double[] out, int n,
+                     double baseFreq, int octaves, double lacunarity, double gain, long seed) {
+        int bound = D.loopBound(n);
+        Scratch s = new Scratch();
+        for (int start = 0; start < bound; start += BLOCK) {
+            int len = Math.min(BLOCK, bound - start);
+            Arrays.fill(out, start, start + len, 0.0);
+
+            double amp = 1.0;
+            double freq = baseFreq;
+            for (int o = 0; o < octaves; o++) {
+                long seedO = seed + o * 1337L;
+                cells(xs, start, len, freq, s.u, s.hx, CX);
+                cells(zs, start, len, freq, s.w, s.hz, CZ);
+                // hash2 has no y term: edges over hy = 0
+                Arrays.fill(s.hy, 0, len, 0L);
+                edges(s.hx, s.hy, s.hz, 0L, 0L, seedO, s.u, s.e[0], len);
+                edges(s.hx, s.hy, s.hz, 0L, CZ, seedO, s.u, s.e[1], len);
+                accumulate2(out, start, len, s, amp);
+                amp *= gain;
+                freq *= lacunarity;
+            }
+        }
+        divide(out, bound, norm(octaves, gain));
+        for (int i = bound; i < n; i++) {
+            out[i] = Noise.fbm2(xs[i], zs[i], baseFreq, octaves, lacunarity, gain, seed);
+        }
+    }
+
+    /** The scalar fbm's normalizer, summed in the same order. */
+    private static double norm(int octaves, double gain) {
+        double amp = 1.0;
+        double norm = 0.0;
+        for (int o = 0; o < octaves; o++) {
+            norm += amp;
+            amp *= gain;
+        }
+        return Math.max(1e-9, norm);
+    }
+
+    /** Per sample along one axis: fade weight of the cell offset, and floor(c * freq) * hashConst. */
+    private static void cells(double[] c, int start, int len, double freq, double[] fade, long[] hash, long hashConst) {
+        for (int j = 0; j < len; j += D.length()) {
+            DoubleVector x = DoubleVector.fromArray(D, c, start + j).mul(freq);
+            LongVector xi = floor(x);
+            fade(x.sub(toDouble(xi))).intoArray(fade, j);
+            xi.mul(hashConst).intoArray(hash, j);
+        }
+    }
+
+    /** One x-edge of each cell: lerp of corners (x0, y0 + dy, z0 + dz) and (x1, ...) by u. */
+    private static void edges(long[] hx, long[] hy, long[] hz, long dy, long dz, long seed,
+                              double[] u, double[] dst, int len) {
+        for (int j = 0; j < len; j += D.length()) {
+            LongVector x0 = LongVector.fromArray(L, hx, j);
+            LongVector rest = LongVector.fromArray(L, hy, j).add(dy)
+                    .lanewise(VectorOperators.XOR, LongVector.fromArray(L, hz, j).add(dz))
+                    .lanewise(VectorOperators.XOR, seed);
+            DoubleVector c0 = corner(x0, rest);
+            DoubleVector c1 = corner(x0.add(CX), rest);
+            lerp(c0, c1, DoubleVector.fromArray(D, u, j)).intoArray(dst, j);
+        }
+    }
+
+    private static void accumulate3(double[] out, int start, int len, Scratch s, double amp) {
+        double[] e00 = s.e[0], e10 = s.e[1], e01 = s.e[2], e11 = s.e[3];
+        for (int j = 0; j < len; j += D.length()) {
+            DoubleVector v = DoubleVector.fromArray(D, s.v, j);
+            DoubleVector y0 = lerp(DoubleVector.fromArray(D, e00, j), DoubleVector.fromArray(D, e10, j), v);
+            DoubleVector y1 = lerp(DoubleVector.fromArray(D, e01, j), DoubleVector.fromArray(D, e11, j), v);
+            DoubleVector val = lerp(y0, y1, DoubleVector.fromArray(D, s.w, j));
+            DoubleVector.fromArray(D, out, start + j).add(val.mul(amp)).intoArray(out, start + j);
+        }
+    }
+
+    private static void accumulate2(double[] out, int start, int len, Scratch s, double amp) {
+        for (int j = 0; j < len; j += D.length()) {
+            DoubleVector val = lerp(DoubleVector.fromArray(D, s.e[0], j), DoubleVector.fromArray(D, s.e[1], j),
+                                    DoubleVector.fromArray(D, s.w, j));
+            DoubleVector.fromArray(D, out, start + j).add(val.mul(amp)).intoArray(out, start + j);
+        }
+    }
+
+    private static void divide(double[] out, int n, double norm) {
+        for (int i = 0; i < n; i += D.length()) {
+            DoubleVector.fromArray(D, out, i).div(norm).intoArray(out, i);
+        }
+    }
+
+    /** hashToUnit(hash3(...)) * 2 - 1, from the x term and the other terms pre-xored. */
+    private static DoubleVector corner(LongVector hx, LongVector rest) {
+        LongVector h = hx.lanewise(VectorOperators.XOR, rest);
+        h = h.lanewise(VectorOperators.XOR, h.lanewise(VectorOperators.LSHR, 27));
+        h = h.mul(0x3C79AC492BA7B653L);
+        h = h.lanewise(VectorOperators.XOR, h.lanewise(VectorOperators.LSHR, 33));
+        h = h.mul(0x1C69B3F74AC4AE35L);
+        h = h.lanewise(VectorOperators.XOR, h.lanewise(VectorOperators.LSHR, 27));
+        return toDouble(h.lanewise(VectorOperators.LSHR, 11)).mul(UNIT).mul(2).sub(1);
+    }
+
+    /** (long) Math.floor(x): truncate, then step down where that rounded up. */
+    private static LongVector floor(DoubleVector x) {
+        LongVector t = (LongVector) x.convertShape(VectorOperators.D2L, L, 0);
+        VectorMask<Double> up = toDouble(t).compare(VectorOperators.GT, x);
+        return t.lanewise(VectorOperators.SUB, 1L, up.cast(L));
+    }
+
+    private static DoubleVector toDouble(LongVector v) {
+        return (DoubleVector) v.convertShape(VectorOperators.L2D, D, 0);
+    }
+
+    private static DoubleVector fade(DoubleVector t) {
+        // t * t * t * (t * (t * 6 - 15) + 10)
+        return t.mul(t).mul(t).mul(t.mul(t.mul(6).sub(15)).add(10));
+    }
+
+    private static DoubleVector lerp(DoubleVector a, DoubleVector b, DoubleVector t) {
+        return a.add(b.sub(a).mul(t));
+    }
+}
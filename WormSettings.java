@@ -10,6 +10,9 @@ public class WormSettings {
 
     public int numSteps;
 
+    // Seeds the worm's SplittableRandom, so the same settings give the same path
+    public long seed;
+
     // Behaviour of the worm (you can expose these later in UI if you want)
     public double baseAttraction;
     public double attractionGrowth;
@@ -26,6 +29,7 @@ public class WormSettings {
         this.maxSegmentSize = fixedSegmentSize;
 
         this.numSteps = 2000;
+        this.seed = 0;
 
         this.baseAttraction = 0.05;
         this.attractionGrowth = 0.7;
@@ -41,6 +45,7 @@ public class WormSettings {
         w.minSegmentSize = minSegmentSize;
         w.maxSegmentSize = maxSegmentSize;
         w.numSteps = numSteps;
+        w.seed = seed;
         w.baseAttraction = baseAttraction;
         w.attractionGrowth = attractionGrowth;
         w.wanderStrength = wanderStrength;
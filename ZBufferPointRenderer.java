@@ -1,11 +1,25 @@
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
+/**
+ * Z-buffered grey splats for surface point clouds, written straight into the int
+ * raster of a TYPE_INT_RGB or TYPE_INT_ARGB image. Each point covers a disc of
+ * splatRadius pixels (0 = one pixel) so sparse clouds render without holes.
+ *
+ * Packed clouds projected in bulk are binned into TILE x TILE screen tiles in
+ * point order and the tiles are splatted in parallel; no two tiles share a
+ * pixel, so the depth buffer needs no locking and the image does not depend on
+ * the thread count. An instance keeps its buffers between frames and is not
+ * thread-safe.
+ */
 public final class ZBufferPointRenderer {
 
     public static final class ProjectResult {
         public final int sx, sy;
-        public final double depth; // bigger = farther or vice versa, just be consistent
+        public final double depth; // smaller = closer
         public ProjectResult(int sx, int sy, double depth) {
             this.sx = sx; this.sy = sy; this.depth = depth;
         }
@@ -15,35 +29,179 @@ public final class ZBufferPointRenderer {
         ProjectResult project(Vector3 world, int w, int h);
     }
 
-    public static void render(
-            BufferedImage img,
-            List<SurfacePoint> points,
-            Projector projector
-    ) {
-        int w = img.getWidth();
-        int h = img.getHeight();
+    public int splatRadius = 0;
 
-        double[] zbuf = new double[w * h];
-        for (int i = 0; i < zbuf.length; i++) zbuf[i] = Double.POSITIVE_INFINITY;
+    private static final int TILE = 64;
+    private static final int BLOCK = 16384;                 // points per projection / binning task
+    private static final int PARALLEL_MIN_POINTS = 1 << 16; // smaller clouds skip binning
 
+    private int[] pixels;
+    private float[] zbuf = new float[0];   // nearness: -depth for Projector input, invZ for Projection input
+    private int width, height, tilesX, tilesY;
+
+    private float[] sx = new float[0], sy = new float[0], invZ = new float[0];
+    private int[] blockCounts = new int[0];
+    private int[] tileStarts = new int[0];
+    private int[] bins = new int[0];
+
+    private void beginFrame(BufferedImage img) {
+        if (!(img.getRaster().getDataBuffer() instanceof DataBufferInt db)) {
+            throw new IllegalArgumentException("needs an int raster image, got type " + img.getType());
+        }
+        pixels = db.getData();
+        width = img.getWidth();
+        height = img.getHeight();
+        tilesX = (width + TILE - 1) / TILE;
+        tilesY = (height + TILE - 1) / TILE;
+        if (zbuf.length < width * height) zbuf = new float[width * height];
+        Arrays.fill(zbuf, 0, width * height, Float.NEGATIVE_INFINITY);
+    }
+
+    public void render(BufferedImage img, List<SurfacePoint> points, Projector projector) {
+        beginFrame(img);
         for (SurfacePoint sp : points) {
-            ProjectResult pr = projector.project(sp.pos, w, h);
-            if (pr == null) continue;
+            plot(projector.project(sp.pos, width, height), sp.light);
+        }
+    }
+
+    /** Same as above for a packed cloud; one probe Vector3 is reused for every point. */
+    public void render(BufferedImage img, SurfacePointBuffer points, Projector projector) {
+        beginFrame(img);
+        float[] c = points.coords(), light = points.lights();
+        Vector3 probe = new Vector3(0, 0, 0);
+        for (int i = 0; i < points.size(); i++) {
+            probe.x = c[3 * i];
+            probe.y = c[3 * i + 1];
+            probe.z = c[3 * i + 2];
+            plot(projector.project(probe, width, height), light[i]);
+        }
+    }
+
+    /**
+     * Packed cloud through a bulk projection (see {@link TriangleRasterizer.Projection});
+     * projection, binning and splatting run on pool, or serially if pool is null.
+     */
+    public void render(BufferedImage img, SurfacePointBuffer points, TriangleRasterizer.Projection projection, ForkJoinPool pool) {
+        beginFrame(img);
+        int n = points.size();
+        if (n == 0 || width == 0 || height == 0) return;
+
+        if (sx.length < n) {
+            sx = new float[n];
+            sy = new float[n];
+            invZ = new float[n];
+        }
+        float[] coords = points.coords(), light = points.lights();
+        int blocks = (n + BLOCK - 1) / BLOCK;
+        Parallel.forRange(pool, blocks, 1, (b0, b1) ->
+                projection.project(coords, b0 * BLOCK, Math.min(n, b1 * BLOCK), sx, sy, invZ));
 
-            int x = pr.sx, y = pr.sy;
-            if (x < 0 || x >= w || y < 0 || y >= h) continue;
+        if (pool == null || n < PARALLEL_MIN_POINTS) {
+            for (int i = 0; i < n; i++) {
+                if (invZ[i] > 0) splat(sx[i], sy[i], invZ[i], light[i], 0, 0, width - 1, height - 1);
+            }
+            return;
+        }
+
+        // Bin: count per (block, tile), prefix sum, then fill in point order
+        int tiles = tilesX * tilesY;
+        if (blockCounts.length < blocks * tiles) blockCounts = new int[blocks * tiles];
+        Arrays.fill(blockCounts, 0, blocks * tiles, 0);
+
+        Parallel.forRange(pool, blocks, 1, (b0, b1) -> {
+            int[] box = new int[4];
+            for (int b = b0; b < b1; b++) {
+                int base = b * tiles;
+                for (int i = b * BLOCK, end = Math.min(n, i + BLOCK); i < end; i++) {
+                    if (!tileBox(i, box)) continue;
+                    for (int ty = box[1]; ty <= box[3]; ty++) {
+                        for (int tx = box[0]; tx <= box[2]; tx++) blockCounts[base + ty * tilesX + tx]++;
+                    }
+                }
+            }
+        });
+
+        if (tileStarts.length < tiles + 1) tileStarts = new int[tiles + 1];
+        int total = 0;
+        for (int t = 0; t < tiles; t++) {
+            tileStarts[t] = total;
+            for (int b = 0; b < blocks; b++) {
+                int c = blockCounts[b * tiles + t];
+                blockCounts[b * tiles + t] = total;   // becomes this block's write offset in tile t
+                total += c;
+            }
+        }
+        tileStarts[tiles] = total;
+        if (bins.length < total) bins = new int[total];
+
+        Parallel.forRange(pool, blocks, 1, (b0, b1) -> {
+            int[] box = new int[4];
+            for (int b = b0; b < b1; b++) {
+                int base = b * tiles;
+                for (int i = b * BLOCK, end = Math.min(n, i + BLOCK); i < end; i++) {
+                    if (!tileBox(i, box)) continue;
+                    for (int ty = box[1]; ty <= box[3]; ty++) {
+                        for (int tx = box[0]; tx <= box[2]; tx++) bins[blockCounts[base + ty * tilesX + tx]++] = i;
+                    }
+                }
+            }
+        });
+
+        Parallel.forRange(pool, tiles, 1, (t0, t1) -> {
+            for (int t = t0; t < t1; t++) {
+                int px0 = (t % tilesX) * TILE, py0 = (t / tilesX) * TILE;
+                int px1 = Math.min(width, px0 + TILE) - 1, py1 = Math.min(height, py0 + TILE) - 1;
+                for (int k = tileStarts[t]; k < tileStarts[t + 1]; k++) {
+                    int i = bins[k];
+                    splat(sx[i], sy[i], invZ[i], light[i], px0, py0, px1, py1);
+                }
+            }
+        });
+    }
+
+    /** Tile range {tx0, ty0, tx1, ty1} touched by point i's splat; false when it is clipped or off screen. */
+    private boolean tileBox(int i, int[] box) {
+        if (!(invZ[i] > 0)) return false;
+        int x = (int) Math.floor(sx[i]), y = (int) Math.floor(sy[i]);
+        int r = splatRadius;
+        if (x + r < 0 || y + r < 0 || x - r >= width || y - r >= height) return false;
+        box[0] = Math.max(0, x - r) / TILE;
+        box[1] = Math.max(0, y - r) / TILE;
+        box[2] = Math.min(width - 1, x + r) / TILE;
+        box[3] = Math.min(height - 1, y + r) / TILE;
+        return true;
+    }
+
+    private void plot(ProjectResult pr, double light) {
+        if (pr == null) return;
+        splat(pr.sx, pr.sy, (float) -pr.depth, light, 0, 0, width - 1, height - 1);
+    }
 
-            int idx = y * w + x;
-            double z = pr.depth;
+    /** Disc of splatRadius around (x, y), clipped to [px0, px1] x [py0, py1]; near = larger is closer. */
+    private void splat(double x, double y, float near, double light, int px0, int py0, int px1, int py1) {
+        if (!(x > Integer.MIN_VALUE && x < Integer.MAX_VALUE && y > Integer.MIN_VALUE && y < Integer.MAX_VALUE)) return;
+        int cx = (int) Math.floor(x), cy = (int) Math.floor(y);
+        int r = splatRadius;
 
-            // smaller depth = closer (if you use opposite, flip comparison)
-            if (z >= zbuf[idx]) continue;
-            zbuf[idx] = z;
+        // grayscale lighting (you can tint later)
+        int c = (int) Math.round(255 * light);
+        int rgb = (0xFF << 24) | (c << 16) | (c << 8) | (c);
 
-            // grayscale lighting (you can tint later)
-            int c = (int) Math.round(255 * sp.light);
-            int rgb = (0xFF << 24) | (c << 16) | (c << 8) | (c);
-            img.setRGB(x, y, rgb);
+        int y0 = Math.max(py0, cy - r), y1 = Math.min(py1, cy + r);
+        int x0 = Math.max(px0, cx - r), x1 = Math.min(px1, cx + r);
+        int r2 = r * r + r;   // rounder discs than r * r for small radii
+        for (int py = y0; py <= y1; py++) {
+            int dy = py - cy;
+            int row = py * width;
+            for (int px = x0; px <= x1; px++) {
+                int dx = px - cx;
+                if (dx * dx + dy * dy > r2) continue;
+                int idx = row + px;
+                if (near > zbuf[idx]) {
+                    zbuf[idx] = near;
+                    pixels[idx] = rgb;
+                }
+            }
         }
     }
 }
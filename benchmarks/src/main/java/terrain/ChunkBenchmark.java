@@ -0,0 +1,32 @@
+package terrain;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** Cost of one streamed terrain chunk, halo included. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChunkBenchmark {
+
+    @Param({"64", "256"})
+    public int size;
+
+    private TerrainSettings ts;
+    private int next;
+
+    @Setup
+    public void setup() {
+        ts = new TerrainSettings();
+    }
+
+    @Benchmark
+    public HeightChunk generateChunk() {
+        // walk along x so no two invocations hit the same chunk
+        return PerlinTerrainGenerator.generateChunk(ts, next++, 0, size);
+    }
+}
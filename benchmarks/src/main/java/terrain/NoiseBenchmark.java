@@ -0,0 +1,136 @@
+package terrain;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-sample cost of the noise kernels. Each invocation sweeps a small line of
+ * sample points so the result cannot be constant-folded.
+ *
+ * The fork resolves jdk.incubator.vector so the *Points benchmarks can compare
+ * SimdNoise against the scalar loop on scattered (non-lattice) points.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class NoiseBenchmark {
+
+    static final int SAMPLES = 1024;
+
+    @Param({"1", "3", "5"})
+    public int octaves;
+
+    private final long seed = 12345;
+    private PerlinNoise perlin;
+    private final double[] row = new double[SAMPLES];
+    private final double[] xs = new double[SAMPLES], ys = new double[SAMPLES], zs = new double[SAMPLES];
+
+    @Setup
+    public void setup() {
+        perlin = new PerlinNoise(seed);
+        Random r = new Random(seed);
+        for (int i = 0; i < SAMPLES; i++) {
+            xs[i] = r.nextDouble() * 400 - 200;
+            ys[i] = r.nextDouble() * 80 - 20;
+            zs[i] = r.nextDouble() * 400 - 200;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public double valueNoise3() {
+        double sum = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            double t = i * 0.173;
+            sum += Noise.valueNoise3(t, t * 0.5, t * 0.25, seed);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public double fbm3() {
+        double sum = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            double t = i * 0.173;
+            sum += Noise.fbm3(t, t * 0.5, t * 0.25, 0.035, octaves, 2.0, 0.5, seed);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public double fbm2() {
+        double sum = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            double t = i * 0.173;
+            sum += Noise.fbm2(t, t * 0.25, 0.015, octaves, 2.0, 0.5, seed);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public double perlinFbm() {
+        double sum = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            double t = i * 0.173;
+            sum += perlin.fbm(t * 0.05, t * 0.0125, octaves, 0.5, 2.0);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public double[] fillFbm2Row() {
+        Noise.fillFbm2(row, 0, 0, 0.173, 0.173, SAMPLES, 1, 0.015, octaves, 2.0, 0.5, seed);
+        return row;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public double[] fillFbm3Row() {
+        Noise.fillFbm3(row, 0, 0, 0, 0.173, 0.173, 0.173, SAMPLES, 1, 1, 0.035, octaves, 2.0, 0.5, seed);
+        return row;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public double[] fbm3PointsScalar() {
+        Noise.fbm3(null, xs, ys, zs, row, SAMPLES, 0.035, octaves, 2.0, 0.5, seed);
+        return row;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public double[] fbm3PointsSimd() {
+        Noise.fbm3(SimdNoise.INSTANCE, xs, ys, zs, row, SAMPLES, 0.035, octaves, 2.0, 0.5, seed);
+        return row;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public double[] fbm2PointsScalar() {
+        Noise.fbm2(null, xs, zs, row, SAMPLES, 0.015, octaves, 2.0, 0.5, seed);
+        return row;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public double[] fbm2PointsSimd() {
+        Noise.fbm2(SimdNoise.INSTANCE, xs, zs, row, SAMPLES, 0.015, octaves, 2.0, 0.5, seed);
+        return row;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public double[] perlinFillFbmRow() {
+        perlin.fillFbm(row, 0, 0, 0.173 * 0.05, 0.173 * 0.0125, SAMPLES, 1, octaves, 0.5, 2.0);
+        return row;
+    }
+}
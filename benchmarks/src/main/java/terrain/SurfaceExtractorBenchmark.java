@@ -0,0 +1,63 @@
+package terrain;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Point-cloud and surface-nets extraction of a {@link CaveTerrainGenerator} volume. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class SurfaceExtractorBenchmark {
+
+    @Param({"2.0", "1.0"})
+    public double step;
+
+    @Param({"false", "true"})
+    public boolean clip;
+
+    private CaveTerrainGenerator cave;
+    private DensityField denseCave;   // hides densityBounds, forcing the dense slab path
+    private DensityField graphCave;   // the same field as a compiled DensityGraph
+    private final Vector3 min = new Vector3(-32, 0, -32);
+    private final Vector3 max = new Vector3(32, 64, 32);
+    private final Vector3 clipOrigin = new Vector3(0, 0, 0);
+    private final Vector3 clipNormal = new Vector3(1, 0, 1).normalize();
+
+    @Setup
+    public void setup() {
+        cave = new CaveTerrainGenerator();
+        denseCave = cave::density;
+        graphCave = DensityGraph.compile(DensityGraph.cave(cave), cave.seed);
+    }
+
+    @Benchmark
+    public List<SurfacePoint> extractSurfacePoints() {
+        return SurfaceExtractor.extractSurfacePoints(cave, min, max, step, clip, clipOrigin, clipNormal);
+    }
+
+    @Benchmark
+    public List<SurfacePoint> extractSurfacePointsSerial() {
+        return SurfaceExtractor.extractSurfacePoints(cave, min, max, step, clip, clipOrigin, clipNormal, null);
+    }
+
+    @Benchmark
+    public List<SurfacePoint> extractSurfacePointsGraphSerial() {
+        return SurfaceExtractor.extractSurfacePoints(graphCave, min, max, step, clip, clipOrigin, clipNormal, null);
+    }
+
+    @Benchmark
+    public List<SurfacePoint> extractSurfacePointsDenseSerial() {
+        return SurfaceExtractor.extractSurfacePoints(denseCave, min, max, step, clip, clipOrigin, clipNormal, null);
+    }
+
+    /** Watertight mesh of the same volume; ignores the clip parameter. */
+    @Benchmark
+    public TerrainMesh surfaceNetsSerial() {
+        return SurfaceNets.extractMesh(cave, min, max, step, null);
+    }
+}
@@ -0,0 +1,56 @@
+package terrain;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/** Full heightmap + smoothing + polyline build for the terrain wireframe. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TerrainBenchmark {
+
+    @Param({"128", "512", "2048"})
+    public int grid;
+
+    @Param({"3", "5"})
+    public int octaves;
+
+    @Param({"1", "4"})
+    public int step;
+
+    private TerrainSettings ts;
+
+    @Setup
+    public void setup() {
+        ts = new TerrainSettings();
+        ts.gridX = grid;
+        ts.gridZ = grid;
+        ts.octaves = octaves;
+    }
+
+    @Benchmark
+    public List<PathGenerator> generateWireframe() {
+        return PerlinTerrainGenerator.generateWireframe(ts, step);
+    }
+
+    @Benchmark
+    public List<PathGenerator> generateWireframeParallel() {
+        return PerlinTerrainGenerator.generateWireframe(ts, step, ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    public PolylineBatch generateWireframeBatch() {
+        return PerlinTerrainGenerator.generateWireframeBatch(ts, step, null);
+    }
+
+    @Benchmark
+    public TerrainMesh generateMesh() {
+        return PerlinTerrainGenerator.generateMesh(ts, step, null);
+    }
+}
@@ -0,0 +1,48 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/** The batch form of a compiled graph against its scalar form and the hand-written field. */
+class DensityGraphTest {
+    private static final int N = 4096;
+
+    private final double[] xs = new double[N], ys = new double[N], zs = new double[N];
+
+    DensityGraphTest() {
+        Random r = new Random(7);
+        for (int i = 0; i < N; i++) {
+            xs[i] = r.nextDouble() * 256 - 128;
+            ys[i] = r.nextDouble() * 96 - 16;
+            zs[i] = r.nextDouble() * 256 - 128;
+        }
+    }
+
+    @Test
+    void caveGraphBatchMatchesCaveTerrainGenerator() {
+        CaveTerrainGenerator g = new CaveTerrainGenerator();
+        DensityGraph.CompiledField f = DensityGraph.compile(DensityGraph.cave(g), g.seed);
+        double[] expected = new double[N], actual = new double[N];
+        g.densityBatch(xs, ys, zs, expected, N);
+        f.densityBatch(xs, ys, zs, actual, N);
+        for (int i = 0; i < N; i++) {
+            assertEquals(expected[i], actual[i], 0.0, "sample " + i);
+            assertEquals(f.density(xs[i], ys[i], zs[i]), actual[i], 0.0, "sample " + i);
+        }
+    }
+
+    @Test
+    void everyNodeBatchMatchesItsScalarForm() {
+        DensityGraph.Node n = DensityGraph.parse(
+                "max(clamp(mul(x, 0.1, fbm3(0.05, 3, 1)), -2, 2), sub(ridged(0.02, 4, 2), neg(z)),"
+                        + " min(y, add(3, fbm2(0.01, 2, 3, 2.5, 0.4))),"
+                        + " ground(add(20, mul(10, fbm2(0.02, 4, 4))), 5, warp(6, 0.03, 2, 5, sub(0.1, fbm3(0.04, 2, 6)))))");
+        DensityGraph.CompiledField f = DensityGraph.compile(n, 42);
+        double[] actual = new double[N];
+        f.densityBatch(xs, ys, zs, actual, N);
+        for (int i = 0; i < N; i++) {
+            assertEquals(f.density(xs[i], ys[i], zs[i]), actual[i], 0.0, "sample " + i);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/** Chunk coordinates at the ends of the int lattice. */
+class PerlinTerrainGeneratorTest {
+    private static final int SIZE = 64;
+
+    @Test
+    void outermostChunksShareEdgesWithTheirNeighbours() {
+        TerrainSettings ts = new TerrainSettings();
+        int last = (Integer.MAX_VALUE - SIZE - 8) / SIZE;     // leaves room for the sample row and halo
+        HeightChunk a = PerlinTerrainGenerator.generateChunk(ts, last - 1, 0, SIZE);
+        HeightChunk b = PerlinTerrainGenerator.generateChunk(ts, last, 0, SIZE);
+        for (int z = 0; z <= SIZE; z++) {
+            assertEquals(a.heights[z][SIZE], b.heights[z][0], "row " + z);
+        }
+        PerlinTerrainGenerator.generateChunk(ts, Integer.MIN_VALUE / SIZE + 1, 0, SIZE);
+    }
+
+    @Test
+    void chunksPastTheLatticeAreRejected() {
+        TerrainSettings ts = new TerrainSettings();
+        assertThrows(IllegalArgumentException.class, () -> PerlinTerrainGenerator.generateChunk(ts, Integer.MAX_VALUE / SIZE, 0, SIZE));
+        assertThrows(IllegalArgumentException.class, () -> PerlinTerrainGenerator.generateChunk(ts, 0, Integer.MIN_VALUE / SIZE, SIZE));
+        assertThrows(IllegalArgumentException.class, () -> PerlinTerrainGenerator.generateChunk(ts, 1 << 30, 0, SIZE));
+    }
+}
@@ -0,0 +1,91 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+/** Appending to a PolylineBatch well past its initial capacity, fresh and after trim(). */
+class PolylineBatchTest {
+
+    /** Polyline i gets 2 + i % 3 points at x = i, y = point index, and its own settings. */
+    private static WormSettings[] append(PolylineBatch b, int from, int to) {
+        WormSettings[] used = new WormSettings[to];
+        for (int i = from; i < to; i++) {
+            WormSettings s = new WormSettings();
+            used[i] = s;
+            b.startPolyline(s);
+            b.addPoint(i, 0, 0);
+            for (int k = 1; k < 2 + i % 3; k++) b.addPoint(i, k, 0, k, 0xFF000000 | i);
+            b.endPolyline();
+        }
+        return used;
+    }
+
+    private static void assertContents(PolylineBatch b, WormSettings[] settings, int count) {
+        assertEquals(count, b.polylineCount());
+        int point = 0;
+        for (int i = 0; i < count; i++) {
+            assertEquals(point, b.pointStart(i));
+            assertEquals(point + 2 + i % 3, b.pointEnd(i));
+            assertSame(settings[i], b.getSettings(i), "settings of polyline " + i);
+            for (int p = b.pointStart(i); p < b.pointEnd(i); p++) {
+                assertEquals(i, b.coords()[3 * p]);
+                assertEquals(p - b.pointStart(i), b.coords()[3 * p + 1]);
+                if (p > b.pointStart(i)) assertEquals(0xFF000000 | i, b.segmentColor(p - 1 - i));
+            }
+            point = b.pointEnd(i);
+        }
+        assertEquals(point, b.pointCount());
+    }
+
+    @Test
+    void growsPastDefaultCapacity() {
+        PolylineBatch b = new PolylineBatch();   // room for 4 polylines
+        WormSettings[] s = append(b, 0, 1000);
+        assertContents(b, s, 1000);
+    }
+
+    @Test
+    void growsAfterTrim() {
+        PolylineBatch b = new PolylineBatch(2, 1);
+        WormSettings[] first = append(b, 0, 3);
+        b.trim();
+        WormSettings[] all = append(b, 3, 500);
+        System.arraycopy(first, 0, all, 0, 3);
+        assertContents(b, all, 500);
+
+        b.trim();
+        WormSettings[] more = append(b, 500, 700);
+        System.arraycopy(all, 0, more, 0, 500);
+        assertContents(b, more, 700);
+    }
+
+    @Test
+    void growsAfterTrimOfEmptyBatch() {
+        PolylineBatch b = new PolylineBatch();
+        b.trim();
+        WormSettings[] s = append(b, 0, 100);
+        assertContents(b, s, 100);
+    }
+
+    @Test
+    void growsAfterWrappingPackedArrays() {
+        // the layout TerrainIO.read hands over: two 2-point polylines sharing one settings object
+        WormSettings shared = new WormSettings();
+        PolylineBatch b = new PolylineBatch(new float[12], new int[] {0, 2, 4},
+                new float[] {1, 1}, new int[] {0xFF000000, 0xFF000001}, shared);
+        append(b, 2, 200);
+        assertEquals(200, b.polylineCount());
+        assertSame(shared, b.getSettings(1));
+        assertEquals(199, b.coords()[3 * b.pointStart(199)]);
+    }
+
+    @Test
+    void growsAfterConcat() {
+        PolylineBatch a = new PolylineBatch();
+        WormSettings[] s = append(a, 0, 5);
+        PolylineBatch b = PolylineBatch.concat(new PolylineBatch[] {a});
+        WormSettings[] all = append(b, 5, 300);
+        System.arraycopy(s, 0, all, 0, 5);
+        assertContents(b, all, 300);
+    }
+}
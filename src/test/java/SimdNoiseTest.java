@@ -0,0 +1,127 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/** The vector kernels against the scalar point batches; results must match bit for bit. */
+class SimdNoiseTest {
+    private static final double FREQ3 = 0.035, FREQ2 = 0.015;
+
+    private static SimdNoise simd() {
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(), "jdk.incubator.vector not resolved");
+        SimdNoise simd = new VectorSimdNoise();
+        assumeTrue(simd.lanes() >= 4, "vector shape too narrow");
+        return simd;
+    }
+
+    /** Runs fbm3 and fbm2 both ways over the given samples, for 1 to 6 octaves. */
+    private static void assertSameResults(SimdNoise simd, double[] xs, double[] ys, double[] zs, long seed) {
+        int n = xs.length;
+        double[] a = new double[n], b = new double[n];
+        for (int octaves = 1; octaves <= 6; octaves++) {
+            Noise.fbm3(null, xs, ys, zs, a, n, FREQ3, octaves, 2.0, 0.5, seed);
+            Noise.fbm3(simd, xs, ys, zs, b, n, FREQ3, octaves, 2.0, 0.5, seed);
+            assertBitsEqual("fbm3", octaves, xs, a, b);
+
+            Noise.fbm2(null, xs, zs, a, n, FREQ2, octaves, 2.0, 0.5, seed);
+            Noise.fbm2(simd, xs, zs, b, n, FREQ2, octaves, 2.0, 0.5, seed);
+            assertBitsEqual("fbm2", octaves, xs, a, b);
+        }
+    }
+
+    private static void assertBitsEqual(String what, int octaves, double[] xs, double[] scalar, double[] vector) {
+        for (int i = 0; i < scalar.length; i++) {
+            int k = i;
+            assertEquals(Double.doubleToLongBits(scalar[i]), Double.doubleToLongBits(vector[i]),
+                    () -> what + " octaves=" + octaves + " [" + k + "] x=" + xs[k] + ": scalar " + scalar[k] + ", simd " + vector[k]);
+        }
+    }
+
+    private static double[] uniform(SplittableRandom r, int n, double lo, double hi) {
+        double[] a = new double[n];
+        for (int i = 0; i < n; i++) a[i] = r.nextDouble(lo, hi);
+        return a;
+    }
+
+    @Test
+    void negativeCoordinates() {
+        SimdNoise simd = simd();
+        SplittableRandom r = new SplittableRandom(1);
+        int n = 16 * simd.lanes();
+        for (int round = 0; round < 8; round++) {
+            assertSameResults(simd, uniform(r, n, -5000, 0), uniform(r, n, -5000, 0), uniform(r, n, -5000, 5000), r.nextLong());
+        }
+    }
+
+    @Test
+    void latticeAlignedSamples() {
+        SimdNoise simd = simd();
+        SplittableRandom r = new SplittableRandom(2);
+        int n = 16 * simd.lanes();
+        double[] xs = new double[n], ys = new double[n], zs = new double[n];
+        for (int i = 0; i < n; i++) {
+            // exact multiples of a cell at the 0.25 frequency, and the doubles either side of them
+            double c = r.nextInt(-200, 200) * 4.0;
+            xs[i] = switch (i % 3) { case 0 -> c; case 1 -> Math.nextDown(c); default -> Math.nextUp(c); };
+            ys[i] = r.nextInt(-200, 200) * 4.0;
+            zs[i] = -xs[i];
+        }
+        double[] a = new double[n], b = new double[n];
+        for (int octaves = 1; octaves <= 4; octaves++) {
+            Noise.fbm3(null, xs, ys, zs, a, n, 0.25, octaves, 2.0, 0.5, 7);
+            Noise.fbm3(simd, xs, ys, zs, b, n, 0.25, octaves, 2.0, 0.5, 7);
+            assertBitsEqual("fbm3", octaves, xs, a, b);
+
+            Noise.fbm2(null, xs, zs, a, n, 0.25, octaves, 2.0, 0.5, 7);
+            Noise.fbm2(simd, xs, zs, b, n, 0.25, octaves, 2.0, 0.5, 7);
+            assertBitsEqual("fbm2", octaves, xs, a, b);
+        }
+        assertSameResults(simd, xs, ys, zs, 11);
+    }
+
+    @Test
+    void lengthsThatLeaveATail() {
+        SimdNoise simd = simd();
+        SplittableRandom r = new SplittableRandom(3);
+        int lanes = simd.lanes();
+        for (int n : new int[] {1, lanes - 1, lanes + 1, 2 * lanes + lanes / 2, 256 + lanes - 1, 257, 3 * 256 + 5}) {
+            assertSameResults(simd, uniform(r, n, -1000, 1000), uniform(r, n, -1000, 1000), uniform(r, n, -1000, 1000), r.nextLong());
+        }
+    }
+
+    @Test
+    void hugeCoordinates() {
+        SimdNoise simd = simd();
+        SplittableRandom r = new SplittableRandom(4);
+        int n = 4 * simd.lanes() + 3;
+        double edge = Integer.MAX_VALUE / FREQ2;   // where an int floor used to saturate
+        for (double scale : new double[] {edge, 1e11, 1e14}) {
+            assertSameResults(simd, uniform(r, n, -scale * 4, scale * 4), uniform(r, n, -scale, scale),
+                    uniform(r, n, -scale * 4, scale * 4), r.nextLong());
+        }
+    }
+
+    @Test
+    void sampleDoesNotDependOnItsLane() {
+        SimdNoise simd = simd();
+        int n = 2 * simd.lanes() + 1;   // the last sample takes the scalar tail
+        for (double x : new double[] {-12.75, 1e11, -3e12, Integer.MAX_VALUE / FREQ3 + 0.5}) {
+            double[] xs = new double[n], out = new double[n];
+            Arrays.fill(xs, x);
+            Noise.fbm3(simd, xs, xs, xs, out, n, FREQ3, 5, 2.0, 0.5, 99);
+            for (int i = 0; i < n; i++) {
+                assertEquals(out[0], out[i], "lane " + i + " at x=" + x);
+                assertTrue(Math.abs(out[i]) <= 1.0, "fbm3 out of range at x=" + x + ": " + out[i]);
+            }
+            Noise.fbm2(simd, xs, xs, out, n, FREQ2, 5, 2.0, 0.5, 99);
+            for (int i = 0; i < n; i++) {
+                assertEquals(out[0], out[i], "lane " + i + " at x=" + x);
+                assertTrue(Math.abs(out[i]) <= 1.0, "fbm2 out of range at x=" + x + ": " + out[i]);
+            }
+        }
+    }
+}